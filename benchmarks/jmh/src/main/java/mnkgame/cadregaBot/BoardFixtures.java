@@ -0,0 +1,112 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The fixed board fixtures of the benchmarks: random positions with P1 to move, where no player can win in one move
+ * and around a quarter of the board is marked. The positions of a configuration are always the same, so the results
+ * of two commits are comparable.
+ */
+final class BoardFixtures {
+
+    /**
+     * The number of positions of every configuration, a power of two so that the benchmarks can cycle through them
+     * with a mask.
+     */
+    static final int POSITIONS = 4;
+
+    final int M, N, K;
+    final MNKCell[][] markedCells = new MNKCell[POSITIONS][], freeCells = new MNKCell[POSITIONS][];
+
+    /**
+     * Generates the fixtures of a configuration.
+     *
+     * @param mnk The configuration, as {@code "MxNxK"}.
+     */
+    BoardFixtures(String mnk) {
+        String[] values = mnk.split("x");
+        this.M = Integer.parseInt(values[0].trim());
+        this.N = Integer.parseInt(values[1].trim());
+        this.K = Integer.parseInt(values[2].trim());
+
+        Random random = new Random(M * 31L + N * 7L + K);
+        MNKCellState[][] board = new MNKCellState[M][N];
+        EvaluateUtil evaluateUtil = new EvaluateUtil(M, N, K, board);
+        int moves = (M * N / 4) & ~1;
+        for (int p = 0; p < POSITIONS; p++) {
+            MNKCell[] MC = new MNKCell[moves];
+            load(board, new MNKCell[0]);
+            for (int m = 0; m < moves; ) {
+                int i = random.nextInt(M), j = random.nextInt(N);
+                if (board[i][j] != MNKCellState.FREE) {
+                    continue;
+                }
+                MNKCellState player = m % 2 == 0 ? MNKCellState.P1 : MNKCellState.P2;
+                board[i][j] = player;
+                if (hasWinningCell(board, evaluateUtil)) {
+                    board[i][j] = MNKCellState.FREE; // Try another cell
+                } else {
+                    MC[m++] = new MNKCell(i, j, player);
+                }
+            }
+            markedCells[p] = MC;
+            freeCells[p] = freeCells(MC);
+        }
+    }
+
+    /**
+     * Creates a board with a position on it.
+     *
+     * @param p The index of the position.
+     * @return The board.
+     */
+    MNKCellState[][] board(int p) {
+        MNKCellState[][] board = new MNKCellState[M][N];
+        load(board, markedCells[p]);
+        return board;
+    }
+
+    // Whether a player can win in one move
+    private boolean hasWinningCell(MNKCellState[][] board, EvaluateUtil evaluateUtil) {
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (board[i][j] == MNKCellState.FREE) {
+                    MNKCell cell = new MNKCell(i, j);
+                    if (evaluateUtil.isWinningCell(cell, MNKCellState.P1) || evaluateUtil.isWinningCell(cell, MNKCellState.P2)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private MNKCell[] freeCells(MNKCell[] MC) {
+        MNKCellState[][] board = new MNKCellState[M][N];
+        load(board, MC);
+        List<MNKCell> FC = new ArrayList<>();
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (board[i][j] == MNKCellState.FREE) {
+                    FC.add(new MNKCell(i, j));
+                }
+            }
+        }
+        return FC.toArray(new MNKCell[0]);
+    }
+
+    private static void load(MNKCellState[][] board, MNKCell[] MC) {
+        for (MNKCellState[] row : board) {
+            Arrays.fill(row, MNKCellState.FREE);
+        }
+        for (MNKCell cell : MC) {
+            board[cell.i][cell.j] = cell.state;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the heuristic ({@link EvaluateUtil}) on the {@link BoardFixtures}.
+ * <p>
+ * An operation evaluates every free cell of a position, cycling through the positions of the configuration.
+ * Every position has its own EvaluateUtil and board, so the board is never reloaded while measuring.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HeuristicBenchmark {
+
+    @Param({"6x6x4", "7x7x4", "10x10x5"})
+    public String mnk;
+
+    private EvaluateUtil[] evaluateUtils;
+    private MNKCell[][] freeCells;
+    private int next; // The index of the next position
+
+    @Setup
+    public void setUp() {
+        BoardFixtures fixtures = new BoardFixtures(mnk);
+        evaluateUtils = new EvaluateUtil[BoardFixtures.POSITIONS];
+        for (int p = 0; p < BoardFixtures.POSITIONS; p++) {
+            evaluateUtils[p] = new EvaluateUtil(fixtures.M, fixtures.N, fixtures.K, fixtures.board(p));
+        }
+        freeCells = fixtures.freeCells;
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        int p = next++ & (BoardFixtures.POSITIONS - 1);
+        EvaluateUtil evaluateUtil = evaluateUtils[p];
+        for (MNKCell cell : freeCells[p]) {
+            blackhole.consume(evaluateUtil.evaluate(cell, MNKCellState.P1));
+        }
+    }
+
+    @Benchmark
+    public void simpleEvaluate(Blackhole blackhole) {
+        int p = next++ & (BoardFixtures.POSITIONS - 1);
+        EvaluateUtil evaluateUtil = evaluateUtils[p];
+        for (MNKCell cell : freeCells[p]) {
+            blackhole.consume(evaluateUtil.simpleEvaluate(cell, MNKCellState.P1));
+        }
+    }
+
+    @Benchmark
+    public void isWinningCell(Blackhole blackhole) {
+        int p = next++ & (BoardFixtures.POSITIONS - 1);
+        EvaluateUtil evaluateUtil = evaluateUtils[p];
+        for (MNKCell cell : freeCells[p]) {
+            blackhole.consume(evaluateUtil.isWinningCell(cell, MNKCellState.P1));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCellState;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the move generation and of the search of {@link CadregaBot} on the {@link BoardFixtures}:
+ * {@link SortUtil#radixSort(long[], int, long[], int[])} on the moves generated for the fixtures, which are realistic
+ * score distributions, {@link CadregaBot#complexEvaluateTmpBoard(FreeCells, MNKCellState)}, and alphabeta visits
+ * to a fixed depth, whose nodes per second are reported by the secondary metric {@code nodes}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    @Param({"6x6x4", "7x7x4", "10x10x5"})
+    public String mnk;
+
+    @Param({"3"})
+    public int depth;
+
+    private BoardFixtures fixtures;
+    private CadregaBot[] bots; // A bot playing first for every position, with the position loaded
+    private CadregaBot searchBot;
+    private long[][] moves;
+    private long[] sortMoves, sortBuffer;
+    private final int[] sortCounts = new int[256];
+    private int next; // The index of the next position
+
+    /**
+     * The nodes visited by the alphabeta benchmark, reported per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        fixtures = new BoardFixtures(mnk);
+        bots = new CadregaBot[BoardFixtures.POSITIONS];
+        moves = new long[BoardFixtures.POSITIONS][];
+        for (int p = 0; p < BoardFixtures.POSITIONS; p++) {
+            bots[p] = newBot();
+            bots[p].loadPosition(fixtures.markedCells[p]);
+            moves[p] = bots[p].complexEvaluateTmpBoard(bots[p].getFreeCells(), MNKCellState.P1);
+        }
+        searchBot = newBot();
+        sortMoves = new long[fixtures.M * fixtures.N];
+        sortBuffer = new long[fixtures.M * fixtures.N];
+    }
+
+    // Every fixture has an even number of moves, so the bot plays first
+    private CadregaBot newBot() {
+        CadregaBot bot = new CadregaBot();
+        bot.setSearchLimit(SearchLimit.depth(depth)); // Not limited by time, so initPlayer doesn't calibrate
+        bot.initPlayer(fixtures.M, fixtures.N, fixtures.K, true, 10);
+        return bot;
+    }
+
+    @Benchmark
+    public long radixSort() {
+        int p = next++ & (BoardFixtures.POSITIONS - 1);
+        System.arraycopy(moves[p], 0, sortMoves, 0, moves[p].length);
+        SortUtil.radixSort(sortMoves, moves[p].length, sortBuffer, sortCounts);
+        return sortMoves[0];
+    }
+
+    @Benchmark
+    public long[] complexEvaluateTmpBoard() {
+        CadregaBot bot = bots[next++ & (BoardFixtures.POSITIONS - 1)];
+        return bot.complexEvaluateTmpBoard(bot.getFreeCells(), MNKCellState.P1);
+    }
+
+    @Benchmark
+    public void alphabeta(Nodes nodes, Blackhole blackhole) {
+        int p = next++ & (BoardFixtures.POSITIONS - 1);
+        searchBot.loadPosition(fixtures.markedCells[p]);
+        blackhole.consume(searchBot.selectCell(fixtures.freeCells[p], fixtures.markedCells[p]));
+        nodes.nodes += searchBot.getNodeCount();
+    }
+}
@@ -0,0 +1,136 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKBoard;
+import mnkgame.MNKCell;
+import mnkgame.MNKGameState;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many concurrent games of {@link CadregaBot} against a random player through a {@link GameScheduler}, and
+ * reports the throughput, the move latency and the heap used by the games.
+ * <p>
+ * Every game is driven asynchronously: the moves of the random player are selected as soon as the move of the bot
+ * completes, so all the games are open at the same time and their searches share the workers of the scheduler.
+ * The bot is limited by nodes (see {@link SearchLimit}), since the time spent in the queue of the scheduler would
+ * otherwise count against a time limit.
+ * <p>
+ * Usage: {@code ConcurrentGames [-g <games>] [-n <nodes>] [-b <tree budget>] [-j <workers>] <M> <N> <K>}
+ */
+public final class ConcurrentGames {
+
+    private static int games = 1000;
+    private static long nodes = 10_000;
+    private static long treeBudget = 4L << 20;
+    private static int workers = Runtime.getRuntime().availableProcessors();
+
+    private static final AtomicLong moves = new AtomicLong(), latencyNanos = new AtomicLong(), maxLatencyNanos = new AtomicLong(),
+            wins = new AtomicLong(), draws = new AtomicLong(), losses = new AtomicLong();
+
+    public static void main(String[] args) {
+        int[] mnk = new int[3];
+        int parameters = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                if (parameters == 3) {
+                    throw new IllegalArgumentException("Illegal argument: " + args[i]);
+                }
+                mnk[parameters++] = Integer.parseInt(args[i]);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected parameter after " + args[i]);
+            }
+            switch (args[i]) {
+                case "-g":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-n":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "-b":
+                    treeBudget = Long.parseLong(args[++i]);
+                    break;
+                case "-j":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            }
+        }
+        if (parameters != 3) {
+            System.err.println("Usage: ConcurrentGames [-g <games>] [-n <nodes>] [-b <tree budget>] [-j <workers>] <M> <N> <K>");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        try (GameScheduler scheduler = new GameScheduler(workers)) {
+            CompletableFuture<?>[] results = new CompletableFuture<?>[games];
+            for (int g = 0; g < games; g++) {
+                MNKBoard board = new MNKBoard(mnk[0], mnk[1], mnk[2]);
+                boolean first = g % 2 == 0;
+                Random random = new Random(g);
+                results[g] = scheduler.newGame(mnk[0], mnk[1], mnk[2], first, 10, SearchLimit.nodes(nodes), treeBudget)
+                        .thenCompose(game -> play(scheduler, game, board, first, random));
+            }
+            CompletableFuture.allOf(results).join();
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            long usedHeap = runtime.totalMemory() - runtime.freeMemory(); // All the games are still referenced
+            System.out.println(String.format(Locale.ROOT, "%d games %d,%d,%d, %d workers, %d nodes per move: "
+                            + "%d wins, %d draws, %d losses", games, mnk[0], mnk[1], mnk[2], workers, nodes,
+                    wins.get(), draws.get(), losses.get()));
+            System.out.println(String.format(Locale.ROOT, "%d moves in %.1f s (%.0f moves/s), latency avg %.1f ms "
+                            + "max %.1f ms, heap %.1f MB (%.1f KB per game)", moves.get(), seconds, moves.get() / seconds,
+                    latencyNanos.get() / 1e6 / Math.max(1, moves.get()), maxLatencyNanos.get() / 1e6,
+                    usedHeap / 1e6, usedHeap / 1e3 / games));
+            for (CompletableFuture<?> result : results) {
+                result.join(); // Keeps the games referenced up to the measure of the heap
+            }
+        }
+    }
+
+    /**
+     * Plays a game up to its end, selecting the moves of the opponent at random.
+     *
+     * @param scheduler The scheduler.
+     * @param game The game.
+     * @param board The board of the game.
+     * @param first Whether the bot is the first player.
+     * @param random The random number generator of the opponent.
+     * @return The game, completed at its end.
+     */
+    private static CompletableFuture<GameScheduler.Game> play(GameScheduler scheduler, GameScheduler.Game game, MNKBoard board,
+                                                              boolean first, Random random) {
+        if (board.gameState() != MNKGameState.OPEN) {
+            MNKGameState won = first ? MNKGameState.WINP1 : MNKGameState.WINP2;
+            (board.gameState() == MNKGameState.DRAW ? draws : board.gameState() == won ? wins : losses).incrementAndGet();
+            return CompletableFuture.completedFuture(game);
+        }
+        if ((board.currentPlayer() == 0) != first) {
+            MNKCell[] FC = board.getFreeCells();
+            MNKCell move = FC[random.nextInt(FC.length)];
+            board.markCell(move.i, move.j);
+            return play(scheduler, game, board, first, random);
+        }
+        long moveStart = System.nanoTime();
+        return scheduler.selectCell(game, board.getFreeCells(), board.getMarkedCells()).thenCompose(move -> {
+            long latency = System.nanoTime() - moveStart;
+            moves.incrementAndGet();
+            latencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            board.markCell(move.i, move.j);
+            return play(scheduler, game, board, first, random);
+        });
+    }
+
+    // Private constructor
+    private ConcurrentGames() {
+        throw new UnsupportedOperationException();
+    }
+}
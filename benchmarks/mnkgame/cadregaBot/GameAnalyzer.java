@@ -0,0 +1,252 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.GameLogReader;
+import mnkgame.GameLogWriter;
+import mnkgame.MNKBoard;
+import mnkgame.MNKCell;
+import mnkgame.MNKGameState;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-analyzes the games of a log written by {@link GameLogWriter} to find the moves which lost significant score,
+ * e.g. because of time pressure or of the horizon of the search.
+ * <p>
+ * Every game is replayed through a new {@link MNKBoard}, and every position is searched again by {@link CadregaBot}
+ * with a fixed node budget or depth, so the results don't depend on time. When the played move differs from the
+ * best one, its score is calculated by a second search restricted to it. A move is flagged when it misses a win,
+ * when it loses a game which wasn't lost, or when its score is lower than the best one by at least the margin.
+ * MOVE records are analyzed as a single position.
+ * <p>
+ * Games are analyzed in parallel by a {@link ForkJoinPool}, every thread with its own {@code CadregaBot}s, and the
+ * results of every game are printed as soon as it has been analyzed, so their order may differ from the log.
+ * A record whose analysis fails (e.g. because it is corrupted) is reported by an error line and counted in the summary.
+ * <p>
+ * Usage: {@code GameAnalyzer [-n <nodes> | -d <depth>] [-m <margin>] [-j <threads>] [-p <player>] <log>}
+ */
+public final class GameAnalyzer {
+
+    private static SearchLimit limit = SearchLimit.nodes(1_000_000);
+    private static int margin = 100;
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    private static String player = null; // Only the moves of this player are analyzed, null for every player
+    private static String log = null;
+
+    // Every thread of the pool reuses its CadregaBots for positions with the same (M, N, K) and player to move
+    private static final ThreadLocal<Map<String, CadregaBot>> BOTS = ThreadLocal.withInitial(HashMap::new);
+
+    private static final AtomicLong positions = new AtomicLong(), missedWins = new AtomicLong(),
+            losingMoves = new AtomicLong(), inaccuracies = new AtomicLong(), illegalGames = new AtomicLong(),
+            errors = new AtomicLong();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                log = args[i];
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected parameter after " + args[i]);
+            }
+            switch (args[i]) {
+                case "-n":
+                    limit = SearchLimit.nodes(Long.parseLong(args[++i]));
+                    break;
+                case "-d":
+                    limit = SearchLimit.depth(Integer.parseInt(args[++i]));
+                    break;
+                case "-m":
+                    margin = Integer.parseInt(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-p":
+                    player = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            }
+        }
+        if (log == null) {
+            System.err.println("Usage: GameAnalyzer [-n <nodes> | -d <depth>] [-m <margin>] [-j <threads>] [-p <player>] <log>");
+            System.exit(1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        Semaphore pending = new Semaphore(4 * pool.getParallelism()); // Bounds the games read but not analyzed yet
+        long games = 0;
+        try (GameLogReader reader = new GameLogReader(Paths.get(log))) {
+            GameLogReader.Record record;
+            while ((record = reader.next()) != null) {
+                GameLogReader.Record game = record;
+                long index = ++games;
+                pending.acquire();
+                pool.execute(() -> {
+                    try {
+                        String report;
+                        try {
+                            report = analyze(index, game);
+                        } catch (RuntimeException e) {
+                            errors.incrementAndGet();
+                            BOTS.get().clear(); // The bots may have been left in the middle of a search
+                            report = String.format(Locale.ROOT, "%d %s %d,%d,%d: error (%s), record skipped%n", index,
+                                    game.type == GameLogWriter.GAME ? "GAME" : "MOVE", game.M, game.N, game.K, e);
+                        }
+                        synchronized (System.out) {
+                            System.out.print(report);
+                            System.out.flush();
+                        }
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%d games, %d positions (%s): %d missed wins, %d losing moves, "
+                        + "%d inaccuracies (margin %d), %d illegal games, %d errors", games, positions.get(), limit,
+                missedWins.get(), losingMoves.get(), inaccuracies.get(), margin, illegalGames.get(), errors.get()));
+    }
+
+    /**
+     * Analyzes a record.
+     *
+     * @param index The index of the record in the log.
+     * @param game The record.
+     * @return The report of the record, one line for the record and one for every flagged move.
+     */
+    private static String analyze(long index, GameLogReader.Record game) {
+        StringBuilder report = new StringBuilder();
+        int flagged = 0;
+        MNKBoard board = new MNKBoard(game.M, game.N, game.K);
+        // The moves of a MOVE record before the last one only rebuild its position
+        int first = game.type == GameLogWriter.MOVE ? game.moves() - 1 : 0;
+        for (int m = 0; m < game.moves(); m++) {
+            MNKCell played = game.cell(m);
+            String mover = game.players[m % 2];
+            if (m >= first && board.gameState() == MNKGameState.OPEN && (player == null || player.equals(mover))) {
+                String flag = analyzeMove(board, played);
+                if (flag != null) {
+                    flagged++;
+                    report.append(String.format(Locale.ROOT, "  move %d P%d (%s) %d,%d: %s%n",
+                            m + 1, m % 2 + 1, mover, played.i, played.j, flag));
+                }
+            }
+            try {
+                if (board.gameState() != MNKGameState.OPEN) {
+                    throw new IllegalStateException("Game already ended");
+                }
+                board.markCell(played.i, played.j);
+            } catch (IllegalStateException | IndexOutOfBoundsException e) {
+                illegalGames.incrementAndGet();
+                report.append(String.format(Locale.ROOT, "  move %d %d,%d: illegal (%s), game skipped%n",
+                        m + 1, played.i, played.j, e.getMessage()));
+                break;
+            }
+        }
+        String players = game.type == GameLogWriter.GAME ? game.players[0] + " vs " + game.players[1]
+                : game.players[0] != null ? game.players[0] + " as P1" : game.players[1] + " as P2";
+        return String.format(Locale.ROOT, "%d %s %d,%d,%d %s: %d flagged%n", index,
+                game.type == GameLogWriter.GAME ? "GAME" : "MOVE", game.M, game.N, game.K, players, flagged) + report;
+    }
+
+    /**
+     * Searches the position of the board and compares the played move with the best one.
+     *
+     * @param board The board, with the player to move of the played move.
+     * @param played The played move.
+     * @return The reason why the move is flagged, {@code null} if it isn't.
+     */
+    private static String analyzeMove(MNKBoard board, MNKCell played) {
+        positions.incrementAndGet();
+        CadregaBot bot = bot(board.M, board.N, board.K, board.currentPlayer() == 0);
+        MNKCell[] MC = board.getMarkedCells();
+
+        bot.setRootMoves(null);
+        bot.loadPosition(MC);
+        MNKCell best = bot.selectCell(board.getFreeCells(), MC);
+        if (best.i == played.i && best.j == played.j) {
+            return null;
+        }
+        // The score of a forced move is heuristic: search it, so that it can be compared with the played one
+        Integer bestScore = bot.getSearchStats().isCompleted() ? Integer.valueOf(bot.getBestScore()) : score(bot, board, best);
+        Integer playedScore = score(bot, board, played);
+        if (bestScore == null || playedScore == null) {
+            return null; // The node budget wasn't enough to search the move
+        }
+
+        int decisive = CadregaBot.OUR_VICTORY - board.M * board.N; // Scores of won (or lost) games are larger than this
+        String scores = String.format(Locale.ROOT, "score %d, best %d,%d score %d", playedScore, best.i, best.j, bestScore);
+        if (bestScore > decisive && playedScore <= decisive) {
+            missedWins.incrementAndGet();
+            return "MISSED WIN, " + scores;
+        }
+        if (playedScore < -decisive && bestScore >= -decisive) {
+            losingMoves.incrementAndGet();
+            return "LOSES, " + scores;
+        }
+        if (Math.abs(bestScore) <= decisive && Math.abs(playedScore) <= decisive && (long) bestScore - playedScore >= margin) {
+            inaccuracies.incrementAndGet();
+            return "INACCURACY, " + scores;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the score of a move, calculated by a search restricted to it.
+     *
+     * @param bot The bot.
+     * @param board The board.
+     * @param move The move.
+     * @return The score, {@code null} if the search didn't complete.
+     */
+    private static Integer score(CadregaBot bot, MNKBoard board, MNKCell move) {
+        // The search would continue after a winning move, since it expects wins to be found by the parent node
+        MNKGameState state = board.markCell(move.i, move.j);
+        board.unmarkCell();
+        if (state == MNKGameState.WINP1 || state == MNKGameState.WINP2) {
+            return CadregaBot.OUR_VICTORY;
+        }
+        MNKCell[] MC = board.getMarkedCells();
+        bot.setRootMoves(new int[]{move.i * board.N + move.j});
+        bot.loadPosition(MC);
+        bot.selectCell(board.getFreeCells(), MC);
+        bot.setRootMoves(null);
+        return bot.getSearchStats().isCompleted() ? Integer.valueOf(bot.getBestScore()) : null;
+    }
+
+    /**
+     * Returns the bot of the current thread for the provided configuration.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @param first Whether the bot is the first player.
+     * @return The bot.
+     */
+    private static CadregaBot bot(int M, int N, int K, boolean first) {
+        return BOTS.get().computeIfAbsent(M + " " + N + " " + K + " " + first, key -> {
+            CadregaBot bot = new CadregaBot();
+            bot.setSearchLimit(limit);
+            bot.initPlayer(M, N, K, first, 2);
+            return bot;
+        });
+    }
+
+    // Private constructor
+    private GameAnalyzer() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,170 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Searches every position of a corpus (see {@link Position}) to a fixed depth, without any time limit,
+ * and compares the results with a stored baseline.
+ * <p>
+ * For every position it records the number of visited nodes, the selected move, its score and the elapsed time.
+ * Since the visit doesn't depend on time, nodes, moves and scores are reproducible: fewer nodes for the same moves
+ * and scores mean better pruning or ordering. Elapsed times are only reported.
+ * <p>
+ * Usage: {@code SearchRegression [-d <depth>] [-c <corpus>] [-b <baseline>] [-u]}, where {@code -u} overwrites
+ * the baseline with the new results. The exit code is 1 if a score differs from the baseline.
+ */
+public final class SearchRegression {
+
+    private static int depth = 4;
+    private static String corpus = "benchmarks/positions/corpus.txt";
+    private static String baseline = "benchmarks/positions/baseline.txt";
+    private static boolean update = false;
+
+    /**
+     * The result of the search of a position.
+     */
+    private static final class Result {
+        final long nodes;
+        final String move;
+        final int score;
+
+        Result(long nodes, String move, int score) {
+            this.nodes = nodes;
+            this.move = move;
+            this.score = score;
+        }
+
+        static Result parse(String line) {
+            String[] fields = line.trim().split("\\s+");
+            return new Result(Long.parseLong(fields[0]), fields[1], Integer.parseInt(fields[2]));
+        }
+
+        @Override
+        public String toString() {
+            return nodes + " " + move + " " + score;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-d":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-c":
+                    corpus = args[++i];
+                    break;
+                case "-b":
+                    baseline = args[++i];
+                    break;
+                case "-u":
+                    update = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            }
+        }
+
+        List<Position> positions = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(corpus), StandardCharsets.UTF_8)) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                positions.add(Position.parse(line));
+            }
+        }
+
+        // The baseline contains a line for every position of the corpus, after a header with the depth
+        List<Result> expected = new ArrayList<>();
+        if (!update && Files.exists(Paths.get(baseline))) {
+            List<String> lines = Files.readAllLines(Paths.get(baseline), StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(header())) {
+                for (String line : lines.subList(1, lines.size())) {
+                    expected.add(Result.parse(line));
+                }
+            } else {
+                System.out.println("The baseline was computed with different settings, it will be ignored");
+            }
+        }
+
+        // Players are reused for positions with the same (M, N, K) and player to move
+        Map<String, CadregaBot> bots = new HashMap<>();
+        List<Result> results = new ArrayList<>();
+        long totalNodes = 0, expectedNodes = 0, totalTime = 0;
+        int scoreChanges = 0, moveChanges = 0;
+        for (int p = 0; p < positions.size(); p++) {
+            Position position = positions.get(p);
+            boolean first = position.getToMove() == MNKCellState.P1;
+            CadregaBot bot = bots.computeIfAbsent(position.M + " " + position.N + " " + position.K + " " + first, key -> {
+                CadregaBot newBot = new CadregaBot();
+                newBot.setSearchLimit(SearchLimit.depth(depth));
+                newBot.initPlayer(position.M, position.N, position.K, first, 2);
+                return newBot;
+            });
+
+            MNKCell[] MC = position.getMarkedCells();
+            bot.loadPosition(MC); // Discard the tree of the previous position
+            long start = System.nanoTime();
+            MNKCell move = bot.selectCell(position.getFreeCells(), MC);
+            long elapsed = System.nanoTime() - start;
+
+            Result result = new Result(bot.getNodeCount(), move.i + "," + move.j, bot.getBestScore());
+            results.add(result);
+            totalNodes += result.nodes;
+            totalTime += elapsed;
+
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%3d %10d nodes %6s %11d %8.1f ms",
+                    p + 1, result.nodes, result.move, result.score, elapsed / 1e6));
+            if (p < expected.size()) {
+                Result old = expected.get(p);
+                expectedNodes += old.nodes;
+                line.append(String.format(Locale.ROOT, "  nodes %+6.1f%%", 100.0 * (result.nodes - old.nodes) / old.nodes));
+                if (!old.move.equals(result.move)) {
+                    moveChanges++;
+                    line.append("  MOVE ").append(old.move).append(" -> ").append(result.move);
+                }
+                if (old.score != result.score) {
+                    scoreChanges++;
+                    line.append("  SCORE ").append(old.score).append(" -> ").append(result.score);
+                }
+            }
+            System.out.println(line);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "Total: %d nodes in %.1f ms (%.0f nodes/s)", totalNodes, totalTime / 1e6, totalNodes * 1e9 / totalTime));
+        if (!expected.isEmpty()) {
+            System.out.println(String.format(Locale.ROOT, "Baseline: %d nodes (%+.1f%%), %d moves and %d scores changed",
+                    expectedNodes, 100.0 * (totalNodes - expectedNodes) / expectedNodes, moveChanges, scoreChanges));
+        }
+
+        if (update) {
+            try (PrintStream out = new PrintStream(baseline, "UTF-8")) {
+                out.println(header());
+                for (Result result : results) {
+                    out.println(result);
+                }
+            }
+            System.out.println("Baseline saved to " + baseline);
+        }
+        System.exit(scoreChanges > 0 ? 1 : 0);
+    }
+
+    private static String header() {
+        return "# depth " + depth + ", corpus " + Paths.get(corpus).getFileName();
+    }
+
+    // Private constructor
+    private SearchRegression() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,194 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+import mnkgame.MNKPlayer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a suite of tactical positions against an {@link MNKPlayer} and reports its solve rate and time to solution.
+ * <p>
+ * Every line of the suite is a {@link Position} followed, in the spirit of EPD, by operations separated by {@code ;}:
+ * {@code bm} lists the best moves as {@code i,j} and {@code id} names the position. The category of a position is
+ * the part of its id before the first {@code -}, e.g. {@code 7 7 4 x 7/7/2xxx2/7/3o3/2oo3/7 ; bm 2,1 2,5 ; id win-1}.
+ * <p>
+ * Every position is played by a new instance of the player, initialized as the player to move. A position is solved
+ * if the player selects one of the best moves within the timeout. Positions are processed in parallel.
+ * <p>
+ * The whole position is passed to a single selectCell call, so the solve rates are meaningful only for players which
+ * rebuild their board from the full MC array, like {@link CadregaBot}. Players which track the game one move per call
+ * (e.g. {@code mnkgame.QuasiRandomPlayer}, which copies only the last cell of MC) see only part of the position.
+ * Players other than CadregaBot are therefore rejected, unless {@code -a} states that they rebuild their board.
+ * <p>
+ * Usage: {@code TacticalSuite [-p <MNKPlayer class> [-a]] [-t <timeout>] [-j <threads>] [-f <suite>]}
+ */
+public final class TacticalSuite {
+
+    private static String player = CadregaBot.class.getName();
+    private static int timeout = 2;
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    private static String suite = "benchmarks/positions/tactics.txt";
+    private static boolean rebuildsBoard = false; // Whether the player rebuilds its board from the full MC array
+
+    /**
+     * A position of the suite.
+     */
+    private static final class Entry {
+        final Position position;
+        final List<String> bestMoves = new ArrayList<>();
+        String id = "";
+
+        Entry(String line) {
+            String[] operations = line.split(";");
+            position = Position.parse(operations[0]);
+            for (int o = 1; o < operations.length; o++) {
+                String[] fields = operations[o].trim().split("\\s+");
+                if (fields[0].equals("bm")) {
+                    for (int f = 1; f < fields.length; f++) {
+                        bestMoves.add(fields[f]);
+                    }
+                } else if (fields[0].equals("id") && fields.length > 1) {
+                    id = fields[1];
+                }
+            }
+            if (bestMoves.isEmpty()) {
+                throw new IllegalArgumentException("Missing bm operation: " + line);
+            }
+        }
+
+        String category() {
+            int dash = id.indexOf('-');
+            return dash < 0 ? id : id.substring(0, dash);
+        }
+    }
+
+    /**
+     * The result of a position.
+     */
+    private static final class Result {
+        final String move;
+        final long nanos;
+
+        Result(String move, long nanos) {
+            this.move = move;
+            this.nanos = nanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-a")) {
+                rebuildsBoard = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected parameter after " + args[i]);
+            }
+            switch (args[i]) {
+                case "-p":
+                    player = args[++i];
+                    break;
+                case "-t":
+                    timeout = Integer.parseInt(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-f":
+                    suite = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Illegal argument: " + args[i]);
+            }
+        }
+        Class<? extends MNKPlayer> playerClass = Class.forName(player).asSubclass(MNKPlayer.class);
+        boolean trusted = CadregaBot.class.isAssignableFrom(playerClass);
+        if (!trusted && !rebuildsBoard) {
+            System.err.println(player + " may track the game one move per selectCell, so it would see only the last move "
+                    + "of every position. Pass -a if it rebuilds its board from the full MC array.");
+            System.err.println("Usage: TacticalSuite [-p <MNKPlayer class> [-a]] [-t <timeout>] [-j <threads>] [-f <suite>]");
+            System.exit(1);
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(suite), StandardCharsets.UTF_8)) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                entries.add(new Entry(line));
+            }
+        }
+
+        // Like MNKPlayerTester, concurrency is capped at the number of processors, so that every player gets its own
+        // processor and the time limits stay fair
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, Runtime.getRuntime().availableProcessors())));
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Entry entry : entries) {
+            futures.add(pool.submit(() -> solve(playerClass, entry.position)));
+        }
+        pool.shutdown();
+
+        // Solved positions and time to solution of every category, in order of appearance
+        Map<String, long[]> categories = new LinkedHashMap<>(); // {positions, solved, total nanos, max nanos}
+        int solved = 0;
+        for (int e = 0; e < entries.size(); e++) {
+            Entry entry = entries.get(e);
+            Result result = futures.get(e).get();
+            boolean ok = entry.bestMoves.contains(result.move) && result.nanos <= timeout * 1_000_000_000L;
+            long[] category = categories.computeIfAbsent(entry.category(), key -> new long[4]);
+            category[0]++;
+            if (ok) {
+                solved++;
+                category[1]++;
+                category[2] += result.nanos;
+                category[3] = Math.max(category[3], result.nanos);
+            }
+            System.out.println(String.format(Locale.ROOT, "%-22s %-4s %6s %9.1f ms  bm %s", entry.id, ok ? "ok" : "FAIL",
+                    result.move, result.nanos / 1e6, String.join(" ", entry.bestMoves)));
+        }
+
+        System.out.println();
+        for (Map.Entry<String, long[]> category : categories.entrySet()) {
+            long[] c = category.getValue();
+            System.out.println(String.format(Locale.ROOT, "%-10s %3d/%-3d solved  time to solution: avg %8.1f ms  max %8.1f ms",
+                    category.getKey(), c[1], c[0], c[1] == 0 ? 0 : c[2] / 1e6 / c[1], c[3] / 1e6));
+        }
+        System.out.println(String.format(Locale.ROOT, "Total      %3d/%-3d solved (%.1f%%)", solved, entries.size(), 100.0 * solved / entries.size()));
+        if (!trusted) {
+            System.out.println("Warning: " + player + " is assumed (-a) to rebuild its board from the full MC array; "
+                    + "otherwise the solve rates measure the harness, not the player");
+        }
+    }
+
+    /**
+     * Plays the provided position with a new instance of the player.
+     *
+     * @param playerClass The class of the player.
+     * @param position The position.
+     * @return The selected move and the time taken by selectCell.
+     * @throws Exception If the player cannot be created or throws an exception.
+     */
+    private static Result solve(Class<? extends MNKPlayer> playerClass, Position position) throws Exception {
+        MNKPlayer p = playerClass.getDeclaredConstructor().newInstance();
+        p.initPlayer(position.M, position.N, position.K, position.getToMove() == MNKCellState.P1, timeout);
+        MNKCell[] FC = position.getFreeCells(), MC = position.getMarkedCells();
+        long start = System.nanoTime();
+        MNKCell move = p.selectCell(FC, MC);
+        return new Result(move.i + "," + move.j, System.nanoTime() - start);
+    }
+
+    // Private constructor
+    private TacticalSuite() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.List;
+import java.util.ArrayList;
+
+
+/**
+ * Reads the game records written by <code>GameLogWriter</code>.
+ * <p>
+ * A truncated last record (e.g. if the writer was killed) is ignored.
+ * Running this class prints the records of a log, one per line.
+ * </p>
+ * <p>
+ * Usage: GameLogReader &lt;log file&gt;
+ * </p>
+ */
+public class GameLogReader implements Closeable {
+	/**
+	 * A GAME or MOVE record. A MOVE record is the sequence of the marked cells of its position
+	 * followed by the selected cell, and only the last move has time, depth and score
+	 */
+	public static class Record {
+		/** GameLogWriter.GAME or GameLogWriter.MOVE */
+		public final byte     type;
+		public final int      M;
+		public final int      N;
+		public final int      K;
+		/** Names of the players, the one of the player who didn't move is null in MOVE records */
+		public final String[] players;
+		/** Result, always GameLogWriter.OPEN in MOVE records */
+		public final int      result;
+		/** Cells of the moves as i*N+j, with their time (ms), depth and score */
+		public final int[]    cells;
+		public final long[]   times;
+		public final int[]    depths;
+		public final int[]    scores;
+
+		Record(byte type, int M, int N, int K, String[] players, int result, int moves) {
+			this.type    = type;
+			this.M       = M;
+			this.N       = N;
+			this.K       = K;
+			this.players = players;
+			this.result  = result;
+			this.cells   = new int[moves];
+			this.times   = new long[moves];
+			this.depths  = new int[moves];
+			this.scores  = new int[moves];
+		}
+
+		/**
+		 * Returns the number of moves
+		 *
+		 * @return Number of moves
+		 */
+		public int moves() {
+			return cells.length;
+		}
+
+		/**
+		 * Returns the i-th move as a MNKCell
+		 *
+		 * @param i Index of the move
+		 *
+		 * @return The cell, marked by the player of the move
+		 */
+		public MNKCell cell(int i) {
+			return new MNKCell(cells[i]/N,cells[i]%N,i % 2 == 0 ? MNKCellState.P1 : MNKCellState.P2);
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(type == GameLogWriter.GAME ? "GAME " : "MOVE ").append(M).append(',').append(N).append(',').append(K);
+			if(type == GameLogWriter.GAME)
+				sb.append(' ').append(players[0]).append(" vs ").append(players[1]).append(' ').append(RESULTS[result]);
+			else
+				sb.append(' ').append(players[0] != null ? players[0] + " as P1" : players[1] + " as P2");
+			sb.append(':');
+			for(int i = 0; i < cells.length; i++) {
+				sb.append(' ').append(cells[i]/N).append(',').append(cells[i]%N);
+				if(depths[i] > 0)
+					sb.append(" (").append(times[i]).append(" ms, depth ").append(depths[i]).append(", score ").append(scores[i]).append(')');
+				else if(type == GameLogWriter.GAME || i == cells.length-1)
+					sb.append(" (").append(times[i]).append(" ms)");
+			}
+			return sb.toString();
+		}
+	}
+
+	private static final String[] RESULTS = {"OPEN","DRAW","WINP1","WINP2","ERRP1","ERRP2"};
+
+	private final DataInputStream in;
+	private final List<String>    players = new ArrayList<String>();
+
+	/**
+	 * Opens a log
+	 *
+	 * @param file Log file
+	 *
+	 * @throws IOException If the file cannot be opened
+	 */
+	public GameLogReader(Path file) throws IOException {
+		this(Files.newInputStream(file));
+	}
+
+	/**
+	 * Reads a log from a stream
+	 *
+	 * @param in Stream
+	 */
+	public GameLogReader(InputStream in) {
+		this.in = new DataInputStream(new BufferedInputStream(in,1 << 16));
+	}
+
+	/**
+	 * Reads the next GAME or MOVE record
+	 *
+	 * @return The record, or null at the end of the log
+	 *
+	 * @throws IOException If the log cannot be read or is corrupted
+	 */
+	public Record next() throws IOException {
+		try {
+			while(true) {
+				int type = in.read();
+				if(type < 0) return null;
+				switch(type) {
+					case 'M': // Header of a writer: player ids are redefined
+						byte[] magic = new byte[GameLogWriter.MAGIC.length];
+						magic[0] = 'M';
+						in.readFully(magic,1,magic.length-1);
+						for(int i = 0; i < magic.length; i++)
+							if(magic[i] != GameLogWriter.MAGIC[i]) throw new IOException("Corrupted game log: bad header");
+						int version = in.readUnsignedByte();
+						if(version != GameLogWriter.VERSION) throw new IOException("Unsupported game log version " + version);
+						players.clear();
+						break;
+					case GameLogWriter.PLAYER:
+						int id = (int) readVarint();
+						byte[] name = new byte[(int) readVarint()];
+						in.readFully(name);
+						if(id != players.size()) throw new IOException("Corrupted game log: unexpected player id " + id);
+						players.add(new String(name,StandardCharsets.UTF_8));
+						break;
+					case GameLogWriter.GAME:
+						return readGame();
+					case GameLogWriter.MOVE:
+						return readMove();
+					default:
+						throw new IOException("Corrupted game log: unknown record type " + type);
+				}
+			}
+		} catch(EOFException e) {
+			return null; // Truncated record
+		}
+	}
+
+	private Record readGame() throws IOException {
+		int M = (int) readVarint(), N = (int) readVarint(), K = (int) readVarint();
+		String[] P = {player(readVarint()),player(readVarint())};
+		int result = in.readUnsignedByte();
+		if(result >= RESULTS.length) throw new IOException("Corrupted game log: unknown result " + result);
+		Record r = new Record(GameLogWriter.GAME,M,N,K,P,result,(int) readVarint());
+		for(int i = 0; i < r.moves(); i++)
+			readMove(r,i);
+		return r;
+	}
+
+	private Record readMove() throws IOException {
+		int M = (int) readVarint(), N = (int) readVarint(), K = (int) readVarint();
+		String player = player(readVarint());
+		int marked = (int) readVarint();
+		String[] P = marked % 2 == 0 ? new String[] {player,null} : new String[] {null,player};
+		Record r = new Record(GameLogWriter.MOVE,M,N,K,P,GameLogWriter.OPEN,marked+1);
+		for(int i = 0; i < marked; i++)
+			r.cells[i] = (int) readVarint();
+		readMove(r,marked);
+		return r;
+	}
+
+	private void readMove(Record r, int i) throws IOException {
+		r.cells[i]  = (int) readVarint();
+		r.times[i]  = readVarint();
+		r.depths[i] = (int) readVarint();
+		int zigzag  = (int) readVarint();
+		r.scores[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+		if(r.cells[i] >= r.M*r.N) throw new IOException("Corrupted game log: cell " + r.cells[i] + " out of the board");
+	}
+
+	private String player(long id) throws IOException {
+		if(id >= players.size()) throw new IOException("Corrupted game log: undefined player id " + id);
+		return players.get((int) id);
+	}
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Corrupted game log: varint too long");
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1) {
+			System.err.println("Usage: GameLogReader <log file>");
+			System.exit(1);
+		}
+		try(GameLogReader reader = new GameLogReader(Paths.get(args[0]))) {
+			Record r;
+			while((r = reader.next()) != null)
+				System.out.println(r);
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+import java.util.HashMap;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Append-only binary log of game records, written asynchronously.
+ * <p>
+ * Records are encoded into a small set of preallocated buffers: a full buffer is handed to a background
+ * thread, which appends it to the file and gives it back. Writing a record never waits for the disk:
+ * if no buffer is free the record is dropped (see <code>getDropped()</code>). After a failed write the log
+ * is not written any more, so the file ends with a truncated record, and the following records are dropped.
+ * Partially filled buffers are written at least once a second.
+ * </p>
+ * <p>
+ * Every writer starts its part of the file with the header <code>MNKL</code> and a version byte,
+ * followed by records made of a type byte and their fields. Integers are unsigned LEB128 varints
+ * (scores are zigzag encoded), strings are a varint length followed by UTF-8 bytes and cells are
+ * their index <code>i*N+j</code>:
+ * <ul>
+ * <li> PLAYER: id, name. Defines the id of a player name used by the following records</li>
+ * <li> GAME: M, N, K, player1 id, player2 id, result, moves, then cell, time (ms), depth, score
+ *      for every move. A depth of 0 means that the depth and the score are unknown</li>
+ * <li> MOVE: M, N, K, player id, marked cells, their cells in game order, then cell, time (ms),
+ *      depth and score of the move selected by the player in that position</li>
+ * </ul>
+ * Player ids are valid until the next header, so a file must not be written by two writers at the same time.
+ * The file can be read with <code>GameLogReader</code>.
+ * </p>
+ */
+public class GameLogWriter implements Closeable {
+	/** Record types */
+	public static final byte PLAYER = 1;
+	public static final byte GAME   = 2;
+	public static final byte MOVE   = 3;
+
+	/** Results of a GAME record: interrupted players (illegal move, timeout or exception) are errors */
+	public static final int OPEN  = 0;
+	public static final int DRAW  = 1;
+	public static final int WINP1 = 2;
+	public static final int WINP2 = 3;
+	public static final int ERRP1 = 4;
+	public static final int ERRP2 = 5;
+
+	static final byte[] MAGIC   = {'M','N','K','L'};
+	static final byte   VERSION = 1;
+
+	private static final int        DEFAULT_BUFFER_SIZE = 1 << 16;
+	private static final int        DEFAULT_BUFFERS     = 4;
+	private static final long       FLUSH_MILLIS        = 1000;
+	private static final ByteBuffer EOF                 = ByteBuffer.allocate(0); // Stops the background thread
+
+	private final FileChannel               channel;
+	private final int                       bufferSize;
+	private final BlockingQueue<ByteBuffer> free;   // Buffers ready to be filled
+	private final BlockingQueue<ByteBuffer> filled; // Buffers waiting to be written
+	private final Thread                    thread;
+	private final Map<String,Integer>       players = new HashMap<String,Integer>();
+
+	private ByteBuffer           current; // Buffer being filled, null if none was free
+	private long                 dropped;
+	private boolean              closed;
+	private volatile IOException error;
+
+	/**
+	 * Opens a log with 4 buffers of 64 KiB, appending to the file if it exists
+	 *
+	 * @param file Log file
+	 *
+	 * @throws IOException If the file cannot be opened
+	 */
+	public GameLogWriter(Path file) throws IOException {
+		this(file,DEFAULT_BUFFER_SIZE,DEFAULT_BUFFERS);
+	}
+
+	/**
+	 * Opens a log, appending to the file if it exists
+	 *
+	 * @param file Log file
+	 * @param bufferSize Size of every buffer in bytes
+	 * @param buffers Number of buffers
+	 *
+	 * @throws IOException If the file cannot be opened
+	 * @throws IllegalArgumentException If bufferSize or buffers are not positive
+	 */
+	public GameLogWriter(Path file, int bufferSize, int buffers) throws IOException {
+		if(bufferSize <= 0 || buffers <= 0)
+			throw new IllegalArgumentException("Buffer size and number of buffers must be larger than 0");
+		this.bufferSize = bufferSize;
+		this.free       = new ArrayBlockingQueue<ByteBuffer>(buffers);
+		this.filled     = new LinkedBlockingQueue<ByteBuffer>();
+		for(int i = 0; i < buffers; i++)
+			free.add(ByteBuffer.allocate(bufferSize));
+		this.channel = FileChannel.open(file,StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.APPEND);
+
+		current = free.poll();
+		current.put(MAGIC).put(VERSION);
+
+		thread = new Thread(new Runnable() {
+			public void run() {
+				writeBuffers();
+			}
+		},"GameLogWriter " + file.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// Body of the background thread: writes the filled buffers until EOF
+	private void writeBuffers() {
+		while(true) {
+			ByteBuffer b;
+			try {
+				b = filled.poll(FLUSH_MILLIS,TimeUnit.MILLISECONDS);
+			} catch(InterruptedException e) {
+				continue; // Only close() stops the thread
+			}
+			if(b == EOF) return;
+			if(b == null) {
+				flush();
+				continue;
+			}
+			b.flip();
+			if(error == null) { // After a failed write the following buffers are discarded, so the file ends with a truncated record
+				try {
+					while(b.hasRemaining())
+						channel.write(b);
+				} catch(IOException e) {
+					error = e; // Reported by close()
+				}
+			}
+			if(b.capacity() == bufferSize) { // Oversized buffers of large records are not reused
+				b.clear();
+				free.add(b);
+			}
+		}
+	}
+
+	// Hands the partially filled buffer to the background thread
+	private synchronized void flush() {
+		if(current != null && current.position() > 0) {
+			filled.add(current);
+			current = free.poll();
+		}
+	}
+
+	// Makes room for a record of at most the given size, returning false (and counting the record as dropped)
+	// if no buffer is free, the log is closed or a write has failed
+	private boolean reserve(int bytes) {
+		if(closed || error != null) {
+			dropped++;
+			return false;
+		}
+		if(current != null && current.remaining() >= bytes) return true;
+		if(current != null && current.position() > 0) {
+			filled.add(current);
+			current = null;
+		}
+		if(current == null) current = free.poll();
+		if(current == null) {
+			dropped++;
+			return false;
+		}
+		if(current.remaining() < bytes) { // The record is larger than a buffer
+			free.add(current);
+			current = ByteBuffer.allocate(bytes);
+		}
+		return true;
+	}
+
+	// Returns the id of a player name, defining it if needed. The space must have been reserved
+	private int playerId(String name) {
+		Integer id = players.get(name);
+		if(id == null) {
+			id = players.size();
+			players.put(name,id);
+			current.put(PLAYER);
+			putVarint(current,id);
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			putVarint(current,bytes.length);
+			current.put(bytes);
+		}
+		return id;
+	}
+
+	// Maximum size of the definition of a player name
+	private static int playerBytes(String name) {
+		return 1 + 5 + 5 + 3*name.length();
+	}
+
+	private static void putVarint(ByteBuffer b, long value) {
+		while((value & ~0x7FL) != 0) {
+			b.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		b.put((byte) value);
+	}
+
+	private static void putMove(ByteBuffer b, int cell, long time, int depth, int score) {
+		putVarint(b,cell);
+		putVarint(b,Math.max(0,time));
+		putVarint(b,Math.max(0,depth));
+		putVarint(b,((score << 1) ^ (score >> 31)) & 0xFFFFFFFFL); // Zigzag, at most 5 bytes
+	}
+
+	/**
+	 * Logs a game
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 * @param player1 Name of the first player
+	 * @param player2 Name of the second player
+	 * @param result Result of the game (OPEN, DRAW, WINP1, WINP2, ERRP1, ERRP2)
+	 * @param moves Number of moves
+	 * @param cells Cells of the moves, as i*N+j
+	 * @param times Time taken by every move in milliseconds
+	 * @param depths Depth reached by the search of every move, or null if unknown
+	 * @param scores Score of every move, or null if unknown
+	 *
+	 * @return False if the record was dropped
+	 */
+	public synchronized boolean writeGame(int M, int N, int K, String player1, String player2, int result,
+	                                      int moves, int[] cells, long[] times, int[] depths, int[] scores) {
+		if(!reserve(1 + 5*3 + playerBytes(player1) + playerBytes(player2) + 5*2 + 1 + 5 + moves*25)) return false;
+		int p1 = playerId(player1);
+		int p2 = playerId(player2);
+		current.put(GAME);
+		putVarint(current,M);
+		putVarint(current,N);
+		putVarint(current,K);
+		putVarint(current,p1);
+		putVarint(current,p2);
+		current.put((byte) result);
+		putVarint(current,moves);
+		for(int i = 0; i < moves; i++)
+			putMove(current,cells[i],times[i],depths == null ? 0 : depths[i],scores == null ? 0 : scores[i]);
+		return true;
+	}
+
+	/**
+	 * Logs the move selected by a player in a position
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 * @param player Name of the player
+	 * @param MC Marked cells of the position, in game order
+	 * @param move Selected cell
+	 * @param time Time taken to select the move in milliseconds
+	 * @param depth Depth reached by the search
+	 * @param score Score of the move
+	 *
+	 * @return False if the record was dropped
+	 */
+	public synchronized boolean writeMove(int M, int N, int K, String player, MNKCell[] MC, MNKCell move,
+	                                      long time, int depth, int score) {
+		if(!reserve(1 + 5*3 + playerBytes(player) + 5 + 5 + MC.length*5 + 25)) return false;
+		int p = playerId(player);
+		current.put(MOVE);
+		putVarint(current,M);
+		putVarint(current,N);
+		putVarint(current,K);
+		putVarint(current,p);
+		putVarint(current,MC.length);
+		for(MNKCell c : MC)
+			putVarint(current,c.i*N+c.j);
+		putMove(current,move.i*N+move.j,time,depth,score);
+		return true;
+	}
+
+	/**
+	 * Returns the number of records dropped because no buffer was free, the log was closed or a write had failed
+	 *
+	 * @return Number of dropped records
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Writes the pending records and closes the file. Records written after closing are dropped
+	 *
+	 * @throws IOException If the log could not be written
+	 */
+	public void close() throws IOException {
+		synchronized(this) {
+			if(closed) return;
+			closed = true;
+			if(current != null && current.position() > 0)
+				filled.add(current);
+			current = null;
+		}
+		filled.add(EOF);
+		boolean interrupted = false;
+		while(thread.isAlive()) {
+			try {
+				thread.join();
+			} catch(InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) Thread.currentThread().interrupt();
+		channel.close();
+		if(error != null) throw error;
+	}
+}
@@ -24,8 +24,7 @@ package mnkgame;
 
 import java.lang.IndexOutOfBoundsException;
 import java.lang.IllegalStateException;
-import java.util.LinkedList;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
  * Board for an (M,N,K)-game.
@@ -34,6 +33,10 @@ import java.util.HashSet;
  * list of moves and allows undoes.
  * 
  * </p> 
+ * <p>
+ * The cells are interned: the board allocates a single <code>MNKCell</code> for every
+ * <code>(i,j,state)</code> triple, so marking and unmarking cells never allocates memory.
+ * </p>
  */
 public class MNKBoard {
 	/**
@@ -50,8 +53,21 @@ public class MNKBoard {
 	public final int K;
 
 	protected final MNKCellState[][]    B;
-	protected final LinkedList<MNKCell> MC;  // Marked Cells
-	protected final HashSet<MNKCell>    FC;  // Free Cells
+	protected final MNKCell[]           MC;     // Marked Cells, in order of play (only the first MCsize are valid)
+	protected final MNKCell[]           FC;     // Free Cells, in no particular order (only the first FCsize are valid)
+	protected final int[]               FCpos;  // Position into FC of every free cell, indexed by i*N+j
+	protected int                       MCsize; // Number of marked cells
+	protected int                       FCsize; // Number of free cells
+
+	private final MNKCell[][] cells;            // Interned cells, indexed by state ordinal and i*N+j
+	private MNKCell[]         MCcache, FCcache; // Arrays returned by getMarkedCells() and getFreeCells(), null if outdated
+
+	// Row and column steps of the four directions: horizontal, vertical, diagonal and anti-diagonal
+	private static final int[] DI = {0,1,1, 1};
+	private static final int[] DJ = {1,0,1,-1};
+
+	private final int[][] run;  // run[d][i*N+j]: length of the run of equal symbols through i,j along direction d (valid only at the run endpoints)
+	private final int[]   left; // left[4*m+d]: length of the run ending right before the m-th marked cell along direction d, used to undo moves
 
 	private final MNKCellState[] Player = {MNKCellState.P1,MNKCellState.P2};
 
@@ -77,10 +93,19 @@ public class MNKBoard {
 		this.N  = N;
 		this.K  = K;
 
-		B  = new MNKCellState[M][N];
-		// Initial capacity large enough to assure load factor < 0.75
-		FC = new HashSet<MNKCell>((int) Math.ceil((M*N) / 0.75)); 
-		MC = new LinkedList<MNKCell>();
+		B     = new MNKCellState[M][N];
+		MC    = new MNKCell[M*N];
+		FC    = new MNKCell[M*N];
+		FCpos = new int[M*N];
+		run   = new int[4][M*N];
+		left  = new int[4*M*N];
+
+		MNKCellState[] states = MNKCellState.values();
+		cells = new MNKCell[states.length][M*N];
+		for(MNKCellState s : states)
+			for(int i = 0; i < M; i++)
+				for(int j = 0; j < N; j++)
+					cells[s.ordinal()][i*N+j] = new MNKCell(i,j,s);
 
 		reset();
 	}
@@ -149,62 +174,119 @@ public class MNKBoard {
 		} else if(B[i][j] != MNKCellState.FREE) {
 			throw new IllegalStateException("Cell " + i +"," + j + " is not free");
 		} else {
-			MNKCell oldc = new MNKCell(i,j,B[i][j]);
-			MNKCell newc = new MNKCell(i,j,Player[currentPlayer]);
-
-			B[i][j] = Player[currentPlayer];
-
-			FC.remove(oldc);
-			MC.add(newc);
-			
-			currentPlayer = (currentPlayer + 1) % 2;
-
-			if(isWinningCell(i,j))
-				gameState =  B[i][j] == MNKCellState.P1 ? MNKGameState.WINP1 : MNKGameState.WINP2;
-			else if(FC.isEmpty())
-				gameState = MNKGameState.DRAW;
-			
-			return gameState;
+			return fastMarkCell(i*N+j);
 		}
   }
 
+	/**
+   * Marks the selected cell for the current player, without any check.
+   * <p>
+   * The win is detected in constant time, using the lengths of the runs of
+   * symbols adjacent to the cell.
+   * </p>
+   *
+   * @param c Index <code>i*N+j</code> of the cell, which must be free. The game must not be ended
+	 * 
+	 * @return State of the game after the move
+   */
+	public MNKGameState fastMarkCell(int c) {
+		int          i = c / N, j = c % N;
+		MNKCellState s = Player[currentPlayer];
+		boolean      win = false;
+
+		B[i][j] = s;
+
+		for(int d = 0; d < 4; d++) {
+			// Join the runs before and after the cell
+			int step = DI[d]*N + DJ[d];
+			int l    = runLength(i-DI[d],j-DJ[d],d,s);
+			int r    = runLength(i+DI[d],j+DJ[d],d,s);
+			int n    = l + 1 + r;
+
+			run[d][c-l*step] = n;
+			run[d][c+r*step] = n;
+			run[d][c]        = n;
+			left[4*MCsize+d] = l;
+
+			if(n >= K) win = true;
+		}
+
+		removeFreeCell(c);
+		MC[MCsize++] = cells[s.ordinal()][c];
+		MCcache = null;
+
+		currentPlayer = (currentPlayer + 1) % 2;
+
+		if(win)
+			gameState =  s == MNKCellState.P1 ? MNKGameState.WINP1 : MNKGameState.WINP2;
+		else if(FCsize == 0)
+			gameState = MNKGameState.DRAW;
+
+		return gameState;
+	}
+
 	/**
    * Undoes last move
    *
    * @throws IllegalStateException If there is no move to undo
    */
 	public void unmarkCell() throws IllegalStateException {
-		if(MC.size() == 0) {
+		if(MCsize == 0) {
 			throw new IllegalStateException("No move to undo");
 		} else {
-			MNKCell oldc = MC.removeLast();
-			MNKCell newc = new MNKCell(oldc.i,oldc.j,MNKCellState.FREE);
-
-			B[oldc.i][oldc.j] = MNKCellState.FREE;
-			
-			FC.add(newc);
-			currentPlayer = (currentPlayer + 1) % 2;
-			gameState     = MNKGameState.OPEN;
+			fastUnmarkCell();
+		}
+	}
+
+	/**
+   * Undoes last move, without any check
+   * <p>There must be a move to undo.</p>
+   */
+	public void fastUnmarkCell() {
+		MNKCell oldc = MC[--MCsize];
+		int     c    = oldc.i*N + oldc.j;
+		MCcache = null;
+
+		for(int d = 0; d < 4; d++) {
+			// Split the run back into the runs before and after the cell
+			int step = DI[d]*N + DJ[d];
+			int l    = left[4*MCsize+d];
+			int r    = run[d][c] - l - 1;
+
+			if(l > 0) run[d][c-l*step] = l;
+			if(r > 0) run[d][c+r*step] = r;
 		}
+
+		B[oldc.i][oldc.j] = MNKCellState.FREE;
+		
+		addFreeCell(c);
+		currentPlayer = (currentPlayer + 1) % 2;
+		gameState     = MNKGameState.OPEN;
 	}
 
 	/**
 	 * Returns the marked cells list in array format.
 	 * <p>This is the history of the game: the first move is in the
 	 * array head, the last move in the array tail.</p>
+	 * <p>The array is cached until the next move, so it must not be modified.</p>
 	 * @return List of marked cells
 	 */ 
 	public MNKCell[] getMarkedCells() {
-		return MC.toArray(new MNKCell[MC.size()]);
+		if(MCcache == null)
+			MCcache = Arrays.copyOf(MC,MCsize);
+		return MCcache;
 	}
 
 	/**
 	 * Returns the free cells list in array format.
 	 * <p>There is not a predefined order for the free cells in the array</p>
+	 * <p>The array is cached until the next move, so it must not be modified.</p>
 	 * @return List of free cells
 	 */
 	public MNKCell[] getFreeCells() {
-		return FC.toArray(new MNKCell[FC.size()]);
+		if(FCcache == null)
+			FCcache = Arrays.copyOf(FC,FCsize);
+		return FCcache;
 	}
 
 	// Sets to free all board cells
@@ -216,50 +298,37 @@ public class MNKBoard {
 
 	// Rebuilds the free cells set 
 	private void initFreeCellList() {
-		this.FC.clear();
-		for(int i = 0; i < M; i++)
-			for(int j = 0; j < N; j++)
-				this.FC.add(new MNKCell(i,j));
+		FCsize  = 0;
+		FCcache = null;
+		for(int c = 0; c < M*N; c++)
+			addFreeCell(c);
 	}
 
 	// Resets the marked cells list
 	private void initMarkedCellList() {
-		this.MC.clear();
+		MCsize  = 0;
+		MCcache = null;
 	}
 
-	// Check winning state from cell i, j
-	private boolean isWinningCell(int i, int j) {
-		MNKCellState s = B[i][j];
-		int n;
-
-		// Useless pedantic check
-		if(s == MNKCellState.FREE) return false;
-
-		// Horizontal check
-		n = 1;
-		for(int k = 1; j-k >= 0 && B[i][j-k] == s; k++) n++; // backward check
-		for(int k = 1; j+k <  N && B[i][j+k] == s; k++) n++; // forward check   
-		if(n >= K) return true;
-
-		// Vertical check
-		n = 1;
-		for(int k = 1; i-k >= 0 && B[i-k][j] == s; k++) n++; // backward check
-		for(int k = 1; i+k <  M && B[i+k][j] == s; k++) n++; // forward check
-		if(n >= K) return true;
-		
-
-		// Diagonal check
-		n = 1;
-		for(int k = 1; i-k >= 0 && j-k >= 0 && B[i-k][j-k] == s; k++) n++; // backward check
-		for(int k = 1; i+k <  M && j+k <  N && B[i+k][j+k] == s; k++) n++; // forward check
-		if(n >= K) return true;
+	// Adds cell c = i*N+j to the free cells set
+	private void addFreeCell(int c) {
+		FC[FCsize]  = cells[MNKCellState.FREE.ordinal()][c];
+		FCpos[c]    = FCsize++;
+		FCcache     = null;
+	}
 
-		// Anti-diagonal check
-		n = 1;
-		for(int k = 1; i-k >= 0 && j+k < N  && B[i-k][j+k] == s; k++) n++; // backward check
-		for(int k = 1; i+k <  M && j-k >= 0 && B[i+k][j-k] == s; k++) n++; // backward check
-		if(n >= K) return true;
+	// Removes cell c = i*N+j from the free cells set, moving the last free cell into its position
+	private void removeFreeCell(int c) {
+		MNKCell last = FC[--FCsize];
+		int     pos  = FCpos[c];
+		FC[pos]                 = last;
+		FCpos[last.i*N+last.j]  = pos;
+		FCcache                 = null;
+	}
 
-		return false;
+	// Returns the length of the run of symbols s along direction d which ends in i,j (0 if i,j is out of bounds or not s)
+	private int runLength(int i, int j, int d, MNKCellState s) {
+		if(i < 0 || i >= M || j < 0 || j >= N || B[i][j] != s) return 0;
+		return run[d][i*N+j];
 	}
 }
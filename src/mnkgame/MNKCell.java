@@ -81,7 +81,7 @@ public class MNKCell {
 
 	@Override
 	public int hashCode() {
-		return this.toString().hashCode();
+		return (this.i * 31 + this.j) * 3 + this.state.ordinal();
 	}
 
 	@Override
@@ -28,11 +28,7 @@ import javax.swing.*;
 import java.lang.reflect.*;
 import java.util.Random;
 
-import java.util.concurrent.Future;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.Callable;
 
@@ -71,6 +67,7 @@ public class MNKGame extends JFrame {
 
 	private MNKPlayerType[]    Player    = new MNKPlayerType[2];
 	private static MNKPlayer[] ComPlayer = new MNKPlayer[2];
+	private static MNKPlayerExecutor[] ComExecutor = new MNKPlayerExecutor[2]; // Long-lived thread of every software player
 	private final int TIMEOUT = 10; // 10 seconds timeout
 
 	// Random number generator
@@ -143,18 +140,13 @@ public class MNKGame extends JFrame {
 							B.markCell(i,j);
 				} else { // Software player
 					int  curr = B.currentPlayer();
-					final ExecutorService executor = Executors.newSingleThreadExecutor();
-					final Future<MNKCell> task     = executor.submit(new StoppablePlayer(ComPlayer[curr],B));
-					executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
-
 					MNKCell c = null;
 
 					try { 
 						// TIMEOUT secs + 10% more time
-  					c = task.get((int)(TIMEOUT+0.1*TIMEOUT), TimeUnit.SECONDS); 
+  					c = ComExecutor[curr].call(new StoppablePlayer(ComPlayer[curr],B),(long)(1100*TIMEOUT),TimeUnit.MILLISECONDS); 
 					}
 					catch(TimeoutException ex) {
-						executor.shutdownNow();	
 						System.err.println(ComPlayer[curr].playerName() + " interrupted due to timeout");
 						System.exit(1);
 					}
@@ -163,8 +155,6 @@ public class MNKGame extends JFrame {
 						System.err.println(" " + ex);
 						System.exit(1);
 					}
-					if (!executor.isTerminated())
-    				executor.shutdownNow(); 
 
 					if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
 						B.markCell(c.i,c.j);
@@ -199,6 +189,9 @@ public class MNKGame extends JFrame {
 			MNKPlayer     tmp2 = ComPlayer[0];
 			ComPlayer[0]	     = ComPlayer[1];
 			ComPlayer[1]       = tmp2;
+			MNKPlayerExecutor tmp3 = ComExecutor[0];
+			ComExecutor[0]         = ComExecutor[1];
+			ComExecutor[1]         = tmp3;
 		}
 	}
 
@@ -209,19 +202,18 @@ public class MNKGame extends JFrame {
 			for(int k = 0; k < 2; k++) {
 				final int i = k; // need to have a final variable here 
 				if(ComPlayer[i] != null) {	
-					final Runnable initPlayer = new Thread() {
-		 				@Override 
-						public void run() { 
+					if(ComExecutor[i] == null)
+						ComExecutor[i] = new MNKPlayerExecutor(ComPlayer[i].playerName());
+					final Callable<Void> initPlayer = new Callable<Void>() {
+						public Void call() { 
 							ComPlayer[i].initPlayer(B.M,B.N,B.K,i == 0,TIMEOUT);
+							return null;
 						}
 					};
 
-					final ExecutorService executor = Executors.newSingleThreadExecutor();
-					final Future future = executor.submit(initPlayer);
-					executor.shutdown();
 					try { 
 						// TIMEOUT secs + 10% more time
- 			 			future.get((int)(TIMEOUT + 0.1*TIMEOUT), TimeUnit.SECONDS); 
+ 			 			ComExecutor[i].call(initPlayer,(long)(1100*TIMEOUT),TimeUnit.MILLISECONDS); 
 					} 
 					catch (TimeoutException e) {
 						System.err.println("Error: " + ComPlayer[i].playerName() + " interrupted: initialization takes too much time");
@@ -231,8 +223,6 @@ public class MNKGame extends JFrame {
 						System.err.println(e);
 						System.exit(1);		
 					}
-					if (!executor.isTerminated())
- 		   			executor.shutdownNow();
 				}
 			}
 		}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * Runs the calls of a MNKPlayer on a single long-lived thread, waiting for them with a timeout.
+ * <p>
+ * The same thread is reused by all the calls of a game, instead of starting a new one at every move.
+ * Timeouts are measured with <code>System.nanoTime()</code> deadlines, and the end of a call
+ * is notified as soon as it happens, so waiting for a player that exceeded its time
+ * returns as soon as the player stops.
+ * </p>
+ */
+class MNKPlayerExecutor {
+	private final ExecutorService executor;
+	private CountDownLatch        running; // Released when the last submitted call ends
+
+	/**
+	 * Creates the executor and its thread
+	 *
+	 * @param name Name of the thread
+	 */
+	MNKPlayerExecutor(final String name) {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r,name);
+				t.setDaemon(true); // A player which never stops must not prevent the JVM from exiting
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Runs a call on the player thread and waits for its result until the timeout expires
+	 *
+	 * @param task    The call
+	 * @param timeout Maximum time to wait
+	 * @param unit    Time unit of the timeout
+	 *
+	 * @return The result of the call
+	 *
+	 * @throws TimeoutException If the call does not end in time
+	 * @throws ExecutionException If the call throws an exception
+	 * @throws InterruptedException If the current thread is interrupted while waiting
+	 */
+	<T> T call(final Callable<T> task, long timeout, TimeUnit unit) throws TimeoutException, ExecutionException, InterruptedException {
+		final long           deadline = System.nanoTime() + unit.toNanos(timeout);
+		final CountDownLatch latch    = new CountDownLatch(1);
+		running = latch;
+		Future<T> future = executor.submit(new Callable<T>() {
+			public T call() throws Exception {
+				try {
+					return task.call();
+				} finally {
+					latch.countDown();
+				}
+			}
+		});
+		return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Waits for the last call to end, after it exceeded its time or threw an exception
+	 *
+	 * @param timeout Maximum time to wait
+	 * @param unit    Time unit of the timeout
+	 *
+	 * @return true if the call ended, false if it is still running
+	 *
+	 * @throws InterruptedException If the current thread is interrupted while waiting
+	 */
+	boolean awaitStop(long timeout, TimeUnit unit) throws InterruptedException {
+		return running == null || running.await(timeout,unit);
+	}
+
+	/**
+	 * Releases the thread once the running call (if any) ends
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -22,16 +22,20 @@
 
 package mnkgame;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import java.nio.file.Paths;
+
 import java.util.List;
 import java.util.ArrayList;
 
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -46,6 +50,8 @@ import java.util.concurrent.Callable;
  * OPTIONS:<br>
  * &nbsp;&nbsp;-t &lt;timeout&gt; Timeout in seconds</br>
  * &nbsp;&nbsp;-r &lt;rounds&gt;  &nbsp;Number of rounds</br>
+ * &nbsp;&nbsp;-j &lt;threads&gt; Number of rounds played concurrently (at most the number of processors)</br>
+ * &nbsp;&nbsp;-l &lt;file&gt; &nbsp;&nbsp;&nbsp;Append the games to a binary log (see GameLogWriter)</br>
  * &nbsp;&nbsp;-v &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;Verbose
  * </p>
  */
@@ -53,13 +59,15 @@ public class MNKPlayerTester {
 	private static int     TIMEOUT = 10;
 	private static int     ROUNDS  = 1;
 	private static boolean VERBOSE = false;
+	private static int     THREADS = 1;
+	private static String  LOGFILE = null;
 
 	private static int     M;
 	private static int     N;
 	private static int     K;
 
-	private static MNKBoard B;
-
+	@SuppressWarnings("unchecked")
+	private static Class<? extends MNKPlayer>[] PlayerClass = (Class<? extends MNKPlayer>[]) new Class<?>[2];
 	private static MNKPlayer[] Player = new MNKPlayer[2];
 
 
@@ -69,125 +77,11 @@ public class MNKPlayerTester {
 	private static int DRAWSCORE  = 1;
 	private static int ERRSCORE   = 2;
 
-	private enum GameState {
-		WINP1, WINP2, DRAW, ERRP1, ERRP2, EP1EX, EP2EX;
-	}
-	
 
 	private MNKPlayerTester() {
 	}
 
 	
-	private static void initGame() {
-		if(VERBOSE) System.out.println("Initializing " + M + "," + N + "," + K + " board");
-		B = new MNKBoard(M,N,K);
-		// Timed-out initializaton of the MNKPlayers
-		for(int k = 0; k < 2; k++) {
-			if(VERBOSE) if(VERBOSE) System.out.println("Initializing " + Player[k].playerName() + " as Player " + (k+1));
-			final int i = k; // need to have a final variable here 
-			final Runnable initPlayer = new Thread() {
-				@Override 
-				public void run() { 
-					Player[i].initPlayer(B.M,B.N,B.K,i == 0,TIMEOUT);
-				}
-			};
-
-			final ExecutorService executor = Executors.newSingleThreadExecutor();
-			final Future future = executor.submit(initPlayer);
-			executor.shutdown();
-			try { 
-				future.get(TIMEOUT, TimeUnit.SECONDS); 
-			} 
-			catch (TimeoutException e) {
-				System.err.println("Error: " + Player[i].playerName() + " interrupted: initialization takes too much time");
-				System.exit(1);
-			}
-			catch (Exception e) { 
-				System.err.println(e);
-				System.exit(1);		
-			}
-			if (!executor.isTerminated())
-				executor.shutdownNow();
-		}
-		if(VERBOSE) System.out.println();
-	}
-
-	private static class StoppablePlayer implements Callable<MNKCell> {
-		private final MNKPlayer P;
-		private final MNKBoard  B;
-
-		public StoppablePlayer(MNKPlayer P, MNKBoard B) {
-			this.P = P;
-			this.B = B;
-		}
-
-		public MNKCell call()  throws InterruptedException {
-			return P.selectCell(B.getFreeCells(),B.getMarkedCells());
-		}
-	}
-
-	private static GameState runGame() {
-		while(B.gameState() == MNKGameState.OPEN) {
-			int  curr = B.currentPlayer();
-			final ExecutorService executor = Executors.newSingleThreadExecutor();
-			final Future<MNKCell> task     = executor.submit(new StoppablePlayer(Player[curr],B));
-			executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
-			
-			MNKCell c = null;
-			
-			try {
-				c = task.get(TIMEOUT, TimeUnit.SECONDS);
-			}
-			catch(TimeoutException ex) {
-				int n = 3; // Wait some more time to see if it stops
-				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to timeout");
-				while(!task.isDone() && n > 0) {
-					System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
-					try {Thread.sleep(TIMEOUT*1000);} catch(InterruptedException e) {}
-					n--;
-				}
-				
-				if(n == 0) {
-					System.err.println("Player " + (curr+1) + " (" +Player[curr].playerName() + ") still running: game closed");
-					return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
-				} else {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
-					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2; 
-				}
-			}
-			catch (Exception ex) {
-				int n = 3; // Wait some more time to see if it stops
-				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to exception");
-				System.err.println(" " + ex);
-				while(!task.isDone() && n > 0) {
-					System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
-					try {Thread.sleep(TIMEOUT*1000);} catch(InterruptedException e) {}
-					n--;
-				}
-				if(n == 0) {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") still running: game closed");
-					return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
-				} else {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
-					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
-				}
-			}
-			
-			if (!executor.isTerminated())
-				executor.shutdownNow();
-
-			if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
-				if(VERBOSE) System.out.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") -> [" + c.i + "," + c.j + "]");
-				B.markCell(c.i,c.j);
-			} else {
-				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ")  selected an illegal move [" + c.i + "," + c.j + "]: round closed");
-				return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
-			}
-		}
-		
-		return B.gameState() == MNKGameState.DRAW ? GameState.DRAW : (B.gameState() == MNKGameState.WINP1 ? GameState.WINP1 : GameState.WINP2);
-	}
-
 	private static void parseArgs(String args[]) {
 		List<String> L = new ArrayList<String>(); 
 		for (int i = 0; i < args.length; i++) {
@@ -215,6 +109,24 @@ public class MNKPlayerTester {
 								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
 							}
 							break;
+						case 'j':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+
+							try {
+								THREADS = Integer.parseInt(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+							}
+							if(THREADS <= 0)
+								throw new IllegalArgumentException("Argument " + args[i-1] + " must be larger than 0");
+							break;
+						case 'l':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+
+							LOGFILE = args[++i];
+							break;
 						case 'v':
 							VERBOSE = true;
 							break;
@@ -257,7 +169,8 @@ public class MNKPlayerTester {
 		String[] P = {L.get(3),L.get(4)};
 		for(int i = 0; i < 2; i++) {
 			try {
-				Player[i] = (MNKPlayer) Class.forName(P[i]).getDeclaredConstructor().newInstance();
+				PlayerClass[i] = Class.forName(P[i]).asSubclass(MNKPlayer.class);
+				Player[i]      = PlayerClass[i].getDeclaredConstructor().newInstance();
 			}
 			catch(ClassNotFoundException e) {
 				throw new IllegalArgumentException("Illegal argument: \'" + P[i] + "\' class not found");
@@ -279,6 +192,8 @@ public class MNKPlayerTester {
 		System.err.println("OPTIONS:");
 		System.err.println("  -t <timeout>  Timeout in seconds. Default: " + TIMEOUT);
 		System.err.println("  -r <rounds>   Number of rounds. Default: " + ROUNDS);
+		System.err.println("  -j <threads>  Number of rounds played concurrently, at most " + Runtime.getRuntime().availableProcessors() + ". Default: " + THREADS);
+		System.err.println("  -l <file>     Append the games to a binary log (see GameLogWriter). Default: none");
 		System.err.println("  -v            Verbose. Default: " + VERBOSE);
 	}
 
@@ -301,27 +216,78 @@ public class MNKPlayerTester {
 			System.exit(1);	
 		}
 
+		// Cap the concurrency at the number of processors, so that the players of concurrent rounds
+		// don't compete for the CPU and their timeouts stay fair
+		THREADS = Math.min(THREADS,Runtime.getRuntime().availableProcessors());
+
 		if(VERBOSE) {
 			System.out.println("Game type : " + M + "," + N + "," + K);
 			System.out.println("Player1   : " + Player[0].playerName());
 			System.out.println("Player2   : " + Player[1].playerName());
 			System.out.println("Rounds    : " + ROUNDS);
+			System.out.println("Threads   : " + THREADS);
 			System.out.println("Timeout   : " + TIMEOUT + " secs\n\n");
 		}
 
-		boolean stop = false;
-		for(int i = 1; i <= ROUNDS && !stop; i++) {
+		GameLogWriter log = null;
+		if(LOGFILE != null) {
+			try {
+				log = new GameLogWriter(Paths.get(LOGFILE));
+			}
+			catch(IOException e) {
+				System.err.println("Error: cannot open " + LOGFILE + ": " + e);
+				System.exit(1);
+			}
+		}
+		final GameLogWriter LOG = log;
+
+		// Concurrent rounds are played by a pool of threads, while the results are collected (in order) by this thread.
+		// Their verbose output is buffered and printed when the round is collected.
+		// A single round at a time is played directly by this thread instead
+		final ExecutorService pool = THREADS > 1 ? Executors.newFixedThreadPool(THREADS) : null;
+		final AtomicBoolean   stop = new AtomicBoolean(false); // Set when a player cannot be stopped
+		List<FutureTask<MNKRound.GameState>> rounds = new ArrayList<FutureTask<MNKRound.GameState>>();
+		List<ByteArrayOutputStream>          output = new ArrayList<ByteArrayOutputStream>();
+		for(int i = 1; i <= ROUNDS; i++) {
+			final ByteArrayOutputStream buffer = THREADS > 1 ? new ByteArrayOutputStream() : null;
+			final PrintStream           out    = THREADS > 1 ? new PrintStream(buffer,true) : System.out;
+			output.add(buffer);
+			rounds.add(new FutureTask<MNKRound.GameState>(new Callable<MNKRound.GameState>() {
+				public MNKRound.GameState call() throws Exception {
+					if(stop.get()) return null; // Don't start new rounds
+					MNKRound.GameState state = new MNKRound(M,N,K,PlayerClass,TIMEOUT,VERBOSE,out,LOG).call();
+					if(state == MNKRound.GameState.EP1EX || state == MNKRound.GameState.EP2EX)
+						stop.set(true);
+					return state;
+				}
+			}));
+			if(pool != null) pool.execute(rounds.get(i-1));
+		}
+		if(pool != null) pool.shutdown();
+
+		for(int i = 1; i <= ROUNDS && !(pool == null && stop.get()); i++) {
 			if(VERBOSE) System.out.println("\n**** ROUND " + i + " ****");
-			initGame();
-			GameState state = runGame();
+			if(pool == null) rounds.get(i-1).run();
+
+			MNKRound.GameState state;
+			try {
+				state = rounds.get(i-1).get();
+			}
+			catch(Exception e) {
+				System.err.println(e);
+				System.exit(1);
+				return;
+			}
+			if(state == null) break; // Skipped since a player could not be stopped
+			if(VERBOSE && output.get(i-1) != null) System.out.print(output.get(i-1));
 
 			switch(state) {
 				case WINP1: P1SCORE += WINP1SCORE; STATP1[0]++; break;
 				case WINP2: P2SCORE += WINP2SCORE; STATP2[0]++; break;
 				case ERRP1: P2SCORE += ERRSCORE;   STATP1[2]++; break;
-				case EP1EX: P2SCORE += ERRSCORE;   STATP1[2]++; stop=true; break;
+				case EP1EX: P2SCORE += ERRSCORE;   STATP1[2]++; break;
 				case ERRP2: P1SCORE += ERRSCORE;   STATP2[2]++; break;
-				case EP2EX: P1SCORE += ERRSCORE;   STATP2[2]++; stop=true; break;
+				case EP2EX: P1SCORE += ERRSCORE;   STATP2[2]++; break;
 				case DRAW : P1SCORE += DRAWSCORE;  STATP1[1]++;
 				            P2SCORE += DRAWSCORE;  STATP2[1]++;
 				            break;
@@ -331,6 +297,15 @@ public class MNKPlayerTester {
 				System.out.println("Current score : " + Player[0].playerName() + " (" + P1SCORE + ") - " + Player[1].playerName() + " (" + P2SCORE + ")");
 			}
 		}
+		if(LOG != null) {
+			try {
+				LOG.close();
+			}
+			catch(IOException e) {
+				System.err.println("Error: cannot write " + LOGFILE + ": " + e);
+			}
+			if(LOG.getDropped() > 0) System.err.println("Warning: " + LOG.getDropped() + " games not logged");
+		}
 		if(VERBOSE) System.out.println("\n**** FINAL SCORE ****");
 		System.out.println(Player[0].playerName() + " Score: " + P1SCORE + " Won: " + STATP1[0] + " Lost: " + STATP2[0] + " Draw: " + STATP1[1] + " Error: " + STATP1[2]);
 		System.out.println(Player[1].playerName() + " Score: " + P2SCORE + " Won: " + STATP2[0] + " Lost: " + STATP1[0] + " Draw: " + STATP2[1] + " Error: " + STATP2[2]);	
@@ -0,0 +1,223 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.io.PrintStream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.Callable;
+
+
+/**
+ * A single round (game) between two MNKPlayer classes.
+ * <p>
+ * Every round has its own MNKBoard and its own freshly instantiated players,
+ * so independent rounds can be played concurrently.
+ * </p>
+ */
+class MNKRound implements Callable<MNKRound.GameState> {
+	enum GameState {
+		WINP1, WINP2, DRAW, ERRP1, ERRP2, EP1EX, EP2EX;
+	}
+
+	private final int         TIMEOUT;
+	private final boolean     VERBOSE;
+	private final PrintStream out;     // Verbose output of the round
+	private final GameLogWriter LOG;   // Log of the played games, null if disabled
+
+	private final MNKBoard    B;
+	private final MNKPlayer[] Player = new MNKPlayer[2];
+	private final MNKPlayerExecutor[] Executor = new MNKPlayerExecutor[2]; // Long-lived thread of every player
+	private final long[]      Time;    // Time taken by every move in milliseconds
+
+	/**
+	 * Creates a round, instantiating the players
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 * @param P MNKPlayer classes of the first and the second player
+	 * @param TIMEOUT Timeout in seconds
+	 * @param VERBOSE Verbose
+	 * @param out Stream where the verbose output is printed
+	 *
+	 * @throws ReflectiveOperationException If a player cannot be instantiated
+	 */
+	MNKRound(int M, int N, int K, Class<? extends MNKPlayer>[] P, int TIMEOUT, boolean VERBOSE, PrintStream out) throws ReflectiveOperationException {
+		this(M,N,K,P,TIMEOUT,VERBOSE,out,null);
+	}
+
+	/**
+	 * Creates a round, instantiating the players
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 * @param P MNKPlayer classes of the first and the second player
+	 * @param TIMEOUT Timeout in seconds
+	 * @param VERBOSE Verbose
+	 * @param out Stream where the verbose output is printed
+	 * @param LOG Log where the game is recorded, or null
+	 *
+	 * @throws ReflectiveOperationException If a player cannot be instantiated
+	 */
+	MNKRound(int M, int N, int K, Class<? extends MNKPlayer>[] P, int TIMEOUT, boolean VERBOSE, PrintStream out, GameLogWriter LOG) throws ReflectiveOperationException {
+		this.TIMEOUT = TIMEOUT;
+		this.VERBOSE = VERBOSE;
+		this.out     = out;
+		this.LOG     = LOG;
+		this.B       = new MNKBoard(M,N,K);
+		this.Time    = new long[M*N];
+		for(int k = 0; k < 2; k++)
+			Player[k] = P[k].getDeclaredConstructor().newInstance();
+	}
+
+	/**
+	 * Initializes the players and plays the round
+	 *
+	 * @return Final state of the round
+	 */
+	public GameState call() {
+		for(int k = 0; k < 2; k++)
+			Executor[k] = new MNKPlayerExecutor("MNKPlayer " + (k+1) + " (" + Player[k].playerName() + ")");
+		try {
+			initGame();
+			GameState state = runGame();
+			if(LOG != null) logGame(state);
+			return state;
+		} finally {
+			for(int k = 0; k < 2; k++)
+				Executor[k].shutdown();
+		}
+	}
+
+	private void initGame() {
+		if(VERBOSE) out.println("Initializing " + B.M + "," + B.N + "," + B.K + " board");
+		// Timed-out initializaton of the MNKPlayers
+		for(int k = 0; k < 2; k++) {
+			if(VERBOSE) out.println("Initializing " + Player[k].playerName() + " as Player " + (k+1));
+			final int i = k; // need to have a final variable here 
+			final Callable<Void> initPlayer = new Callable<Void>() {
+				public Void call() { 
+					Player[i].initPlayer(B.M,B.N,B.K,i == 0,TIMEOUT);
+					return null;
+				}
+			};
+
+			try { 
+				Executor[i].call(initPlayer,TIMEOUT,TimeUnit.SECONDS); 
+			} 
+			catch (TimeoutException e) {
+				System.err.println("Error: " + Player[i].playerName() + " interrupted: initialization takes too much time");
+				System.exit(1);
+			}
+			catch (Exception e) { 
+				System.err.println(e);
+				System.exit(1);		
+			}
+		}
+		if(VERBOSE) out.println();
+	}
+
+	private static class StoppablePlayer implements Callable<MNKCell> {
+		private final MNKPlayer P;
+		private final MNKBoard  B;
+
+		public StoppablePlayer(MNKPlayer P, MNKBoard B) {
+			this.P = P;
+			this.B = B;
+		}
+
+		public MNKCell call()  throws InterruptedException {
+			return P.selectCell(B.getFreeCells(),B.getMarkedCells());
+		}
+	}
+
+	private GameState runGame() {
+		while(B.gameState() == MNKGameState.OPEN) {
+			int  curr = B.currentPlayer();
+			MNKCell c = null;
+			
+			long start = System.nanoTime();
+			try {
+				c = Executor[curr].call(new StoppablePlayer(Player[curr],B),TIMEOUT,TimeUnit.SECONDS);
+				Time[B.getMarkedCells().length] = (System.nanoTime() - start) / 1000000;
+			}
+			catch(TimeoutException ex) {
+				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to timeout");
+				return waitStop(curr);
+			}
+			catch (Exception ex) {
+				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to exception");
+				System.err.println(" " + ex);
+				return waitStop(curr);
+			}
+
+			if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
+				if(VERBOSE) out.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") -> [" + c.i + "," + c.j + "]");
+				B.markCell(c.i,c.j);
+			} else {
+				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ")  selected an illegal move [" + c.i + "," + c.j + "]: round closed");
+				return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+			}
+		}
+		
+		return B.gameState() == MNKGameState.DRAW ? GameState.DRAW : (B.gameState() == MNKGameState.WINP1 ? GameState.WINP1 : GameState.WINP2);
+	}
+
+	// Records the moves of the game and its final state into the log
+	private void logGame(GameState state) {
+		MNKCell[] MC    = B.getMarkedCells();
+		int[]     cells = new int[MC.length];
+		for(int i = 0; i < MC.length; i++)
+			cells[i] = MC[i].i*B.N + MC[i].j;
+		int result;
+		switch(state) {
+			case WINP1: result = GameLogWriter.WINP1; break;
+			case WINP2: result = GameLogWriter.WINP2; break;
+			case DRAW:  result = GameLogWriter.DRAW;  break;
+			case ERRP1:
+			case EP1EX: result = GameLogWriter.ERRP1; break;
+			default:    result = GameLogWriter.ERRP2; break;
+		}
+		LOG.writeGame(B.M,B.N,B.K,Player[0].playerName(),Player[1].playerName(),result,MC.length,cells,Time,null,null);
+	}
+
+	// Waits some more time to see if the interrupted player stops, returning the state of the closed round
+	private GameState waitStop(int curr) {
+		System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + 3*TIMEOUT + " secs)");
+		boolean stopped = false;
+		try {
+			stopped = Executor[curr].awaitStop(3*TIMEOUT,TimeUnit.SECONDS);
+		} catch(InterruptedException e) {}
+
+		if(!stopped) {
+			System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") still running: game closed");
+			return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
+		} else {
+			System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
+			return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+		}
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Runs a round-robin tournament among MNKPlayer classes over a set of (M,N,K) configurations.
+ * <p>
+ * Every pair of players plays, for every configuration and every round, two games, alternating colours.
+ * A game counts 1 for the winner and 1/2 for each player when drawn; an interrupted player
+ * (illegal move, timeout or exception) loses the game.
+ * For every pair of players it prints the results and the Elo difference with its 95% confidence interval
+ * (infinite when the interval reaches a score of 0% or 100%).
+ * </p>
+ * <p>
+ * With two players, the -s option runs a sequential probability ratio test of the hypothesis
+ * H0: elo = elo0 against H1: elo = elo1, where elo is the Elo difference of the first player
+ * with respect to the second one. The tournament stops as soon as a hypothesis is accepted.
+ * </p>
+ * <p>
+ * Usage: MNKTournament [OPTIONS] &lt;MNKPlayer class name&gt; &lt;MNKPlayer class name&gt; [&lt;MNKPlayer class name&gt; ...]<br/>
+ * OPTIONS:<br>
+ * &nbsp;&nbsp;-t &lt;timeout&gt; Timeout in seconds</br>
+ * &nbsp;&nbsp;-r &lt;rounds&gt;  &nbsp;Number of rounds</br>
+ * &nbsp;&nbsp;-j &lt;threads&gt; Number of games played concurrently (at most the number of processors)</br>
+ * &nbsp;&nbsp;-c &lt;configs&gt; (M,N,K) configurations, as M,N,K:M,N,K:...</br>
+ * &nbsp;&nbsp;-s &lt;elo0&gt; &lt;elo1&gt; SPRT bounds (alpha = beta = 0.05)</br>
+ * &nbsp;&nbsp;-v &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;Verbose</br>
+ * </p>
+ */
+public class MNKTournament {
+	private static int     TIMEOUT = 10;
+	private static int     ROUNDS  = 1;
+	private static int     THREADS = 1;
+	private static boolean VERBOSE = false;
+
+	/** The (M,N,K) configurations of RankingASD2022 */
+	private static int[][] CONFIGS = {
+		{3,3,3},{4,3,3},{4,4,3},{4,4,4},{5,4,4},{5,5,4},{5,5,5},{6,4,4},{6,5,4},{6,6,4},{6,6,5},{6,6,6},
+		{7,4,4},{7,5,4},{7,6,4},{7,7,4},{7,5,5},{7,6,5},{7,7,5},{7,7,6},{7,7,7},{8,8,4},{10,10,5},{50,50,10},{70,70,10}
+	};
+
+	/** SPRT parameters */
+	private static boolean SPRT  = false;
+	private static double  ELO0  = 0;
+	private static double  ELO1  = 5;
+	private static double  ALPHA = 0.05;
+	private static double  BETA  = 0.05;
+
+	private static List<Class<? extends MNKPlayer>> PlayerClass = new ArrayList<Class<? extends MNKPlayer>>();
+	private static List<String>                     PlayerName  = new ArrayList<String>();
+
+	/** Results of a pair of players, from the point of view of the first one */
+	private static class Pair {
+		final int a, b;
+		int win, loss, draw;
+
+		Pair(int a, int b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		int games() {
+			return win + loss + draw;
+		}
+
+		// Average score per game
+		double score() {
+			return (win + draw / 2.0) / games();
+		}
+
+		// Variance of the score of a single game
+		double variance() {
+			double s = score();
+			return (win * (1-s)*(1-s) + loss * s*s + draw * (0.5-s)*(0.5-s)) / games();
+		}
+	}
+
+	/** A game of a pair, with its colours */
+	private static class Game {
+		final Pair    pair;
+		final boolean swapped; // true if the second player of the pair moves first
+		final int[]   config;
+
+		Game(Pair pair, boolean swapped, int[] config) {
+			this.pair    = pair;
+			this.swapped = swapped;
+			this.config  = config;
+		}
+	}
+
+	private MNKTournament() {
+	}
+
+	/**
+	 * Converts a score (between 0 and 1) to an Elo difference
+	 *
+	 * @param score Average score per game
+	 * @return Elo difference
+	 */
+	static double elo(double score) {
+		if(score <= 0) return Double.NEGATIVE_INFINITY;
+		if(score >= 1) return Double.POSITIVE_INFINITY;
+		return -400 * Math.log10(1/score - 1);
+	}
+
+	/**
+	 * Converts an Elo difference to an expected score (between 0 and 1)
+	 *
+	 * @param elo Elo difference
+	 * @return Expected score per game
+	 */
+	static double expectedScore(double elo) {
+		return 1 / (1 + Math.pow(10,-elo/400));
+	}
+
+	/**
+	 * Log-likelihood ratio of H1: elo = elo1 against H0: elo = elo0, using the normal approximation of the game scores
+	 *
+	 * @param p Results of the pair
+	 * @param elo0 Elo difference of H0
+	 * @param elo1 Elo difference of H1
+	 * @return Log-likelihood ratio
+	 */
+	static double llr(Pair p, double elo0, double elo1) {
+		if(p.games() == 0 || p.variance() == 0) return 0;
+		double s0 = expectedScore(elo0), s1 = expectedScore(elo1);
+		return p.games() * (s1 - s0) * (2*p.score() - s0 - s1) / (2*p.variance());
+	}
+
+	// Points of the game for the first player of the pair: 1 win, 0 loss, -1 draw
+	private static int result(MNKRound.GameState state, boolean swapped) {
+		switch(state) {
+			case WINP2: case ERRP1: case EP1EX: return swapped ? 1 : 0;
+			case WINP1: case ERRP2: case EP2EX: return swapped ? 0 : 1;
+			default:                            return -1;
+		}
+	}
+
+	private static String format(Pair p) {
+		double s  = p.score();
+		double ci = 1.96 * Math.sqrt(p.variance() / p.games());
+		return String.format("%s vs %s: Games: %d Won: %d Lost: %d Draw: %d Score: %.1f%% Elo: %+.1f [%+.1f, %+.1f]",
+			PlayerName.get(p.a), PlayerName.get(p.b), p.games(), p.win, p.loss, p.draw, 100*s, elo(s), elo(s-ci), elo(s+ci));
+	}
+
+	private static void parseArgs(String args[]) {
+		List<String> L = new ArrayList<String>(); 
+		for (int i = 0; i < args.length; i++) {
+			switch(args[i].charAt(0)) {
+				case '-':
+					char c = (args[i].length() != 2 ? 'x' : args[i].charAt(1));
+					switch(c) {
+						case 't': 
+						case 'r':
+						case 'j':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							
+							int n;
+							try {
+								n = Integer.parseInt(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+							}
+							if(n <= 0)
+								throw new IllegalArgumentException("Argument " + args[i-1] + " must be larger than 0");
+							if(c == 't') TIMEOUT = n;
+							else if(c == 'r') ROUNDS = n;
+							else THREADS = n;
+							break;
+						case 'c':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+
+							String[] configs = args[++i].split(":");
+							CONFIGS = new int[configs.length][];
+							for(int k = 0; k < configs.length; k++) {
+								String[] mnk = configs[k].split(",");
+								if(mnk.length != 3)
+									throw new IllegalArgumentException("Illegal configuration: " + configs[k]);
+								CONFIGS[k] = new int[3];
+								for(int h = 0; h < 3; h++) {
+									try {
+										CONFIGS[k][h] = Integer.parseInt(mnk[h]);
+									} catch(NumberFormatException e) {
+										throw new IllegalArgumentException("Illegal integer format in configuration: " + configs[k]);
+									}
+									if(CONFIGS[k][h] <= 0)
+										throw new IllegalArgumentException("Arguments  M, N, K must be larger than 0: " + configs[k]);
+								}
+							}
+							break;
+						case 's':
+							if(args.length < i+3)
+								throw new IllegalArgumentException("Expected two parameters after " + args[i]);
+
+							try {
+								ELO0 = Double.parseDouble(args[++i]);
+								ELO1 = Double.parseDouble(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal number format for " + args[i-2] + " argument");
+							}
+							SPRT = true;
+							break;
+						case 'v':
+							VERBOSE = true;
+							break;
+						default: 
+							throw new IllegalArgumentException("Illegal argument:  " + args[i]);
+					}
+					break;
+				default:
+				  L.add(args[i]);
+			}
+		}
+
+		if(L.size() < 2)
+			throw new IllegalArgumentException("At least two MNKPlayer classes are needed");
+		if(SPRT && L.size() != 2)
+			throw new IllegalArgumentException("SPRT needs exactly two MNKPlayer classes");
+
+		for(String P : L) {
+			try {
+				Class<? extends MNKPlayer> C = Class.forName(P).asSubclass(MNKPlayer.class);
+				PlayerName.add(C.getDeclaredConstructor().newInstance().playerName());
+				PlayerClass.add(C);
+			}
+			catch(ClassNotFoundException e) {
+				throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class not found");
+			}
+			catch(ClassCastException e) {
+				throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class does not implement the MNKPlayer interface");
+			}
+			catch(NoSuchMethodException e) {
+				throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class constructor needs to be empty");
+			}
+			catch(Exception e) {
+				throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class (unexpected exception) " + e);
+			}
+		}
+	}
+
+	private static void printUsage() {
+		System.err.println("Usage: MNKTournament [OPTIONS] <MNKPlayer class> <MNKPlayer class> [<MNKPlayer class> ...]");
+		System.err.println("OPTIONS:");
+		System.err.println("  -t <timeout>     Timeout in seconds. Default: " + TIMEOUT);
+		System.err.println("  -r <rounds>      Number of rounds (two games per pair and configuration). Default: " + ROUNDS);
+		System.err.println("  -j <threads>     Number of games played concurrently, at most " + Runtime.getRuntime().availableProcessors() + ". Default: " + THREADS);
+		System.err.println("  -c <configs>     (M,N,K) configurations, as M,N,K:M,N,K:... Default: RankingASD2022 configurations");
+		System.err.println("  -s <elo0> <elo1> Stop with a SPRT of H0: elo = elo0 against H1: elo = elo1 (alpha = beta = " + ALPHA + ")");
+		System.err.println("  -v               Verbose. Default: " + VERBOSE);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) {
+		if(args.length == 0) {	
+			printUsage();
+			System.exit(0);
+		}
+		
+		try {
+			parseArgs(args);
+		}
+		catch(Exception e) {
+			System.err.println(e);
+			System.exit(1);	
+		}
+
+		// Cap the concurrency at the number of processors, so that the timeouts stay fair
+		THREADS = Math.min(THREADS,Runtime.getRuntime().availableProcessors());
+
+		// Every round plays every configuration, so that the SPRT sees all of them early
+		List<Pair> pairs = new ArrayList<Pair>();
+		for(int a = 0; a < PlayerClass.size(); a++)
+			for(int b = a+1; b < PlayerClass.size(); b++)
+				pairs.add(new Pair(a,b));
+		List<Game> games = new ArrayList<Game>();
+		for(int r = 0; r < ROUNDS; r++)
+			for(int[] config : CONFIGS)
+				for(Pair p : pairs) {
+					games.add(new Game(p,false,config));
+					games.add(new Game(p,true,config));
+				}
+
+		double lower = Math.log(BETA/(1-ALPHA)), upper = Math.log((1-BETA)/ALPHA);
+		if(VERBOSE) {
+			System.out.println("Players   : " + PlayerName);
+			System.out.println("Configs   : " + CONFIGS.length);
+			System.out.println("Games     : " + games.size());
+			System.out.println("Threads   : " + THREADS);
+			System.out.println("Timeout   : " + TIMEOUT + " secs");
+			if(SPRT) System.out.println(String.format("SPRT      : elo0 %.1f elo1 %.1f LLR bounds [%.2f, %.2f]",ELO0,ELO1,lower,upper));
+			System.out.println();
+		}
+
+		// Games are played like MNKPlayerTester rounds: the results are collected in order by this thread
+		final ExecutorService pool = THREADS > 1 ? Executors.newFixedThreadPool(THREADS) : null;
+		final AtomicBoolean   stop = new AtomicBoolean(false); // Set when the tournament has to stop
+		List<FutureTask<MNKRound.GameState>> tasks = new ArrayList<FutureTask<MNKRound.GameState>>();
+		for(final Game g : games) {
+			final Class<? extends MNKPlayer> P1 = PlayerClass.get(g.swapped ? g.pair.b : g.pair.a);
+			final Class<? extends MNKPlayer> P2 = PlayerClass.get(g.swapped ? g.pair.a : g.pair.b);
+			final Class<? extends MNKPlayer>[] P = (Class<? extends MNKPlayer>[]) new Class<?>[] {P1,P2};
+			FutureTask<MNKRound.GameState> task = new FutureTask<MNKRound.GameState>(new Callable<MNKRound.GameState>() {
+				public MNKRound.GameState call() throws Exception {
+					if(stop.get()) return null;
+					return new MNKRound(g.config[0],g.config[1],g.config[2],P,TIMEOUT,false,System.out).call();
+				}
+			});
+			tasks.add(task);
+			if(pool != null) pool.execute(task);
+		}
+		if(pool != null) pool.shutdown();
+
+		String verdict = null;
+		for(int i = 0; i < games.size() && verdict == null; i++) {
+			if(pool == null) tasks.get(i).run();
+
+			MNKRound.GameState state;
+			try {
+				state = tasks.get(i).get();
+			}
+			catch(Exception e) {
+				System.err.println(e);
+				System.exit(1);
+				return;
+			}
+
+			Game g = games.get(i);
+			switch(result(state,g.swapped)) {
+				case 1:  g.pair.win++;  break;
+				case 0:  g.pair.loss++; break;
+				default: g.pair.draw++; break;
+			}
+			if(VERBOSE) {
+				String P1 = PlayerName.get(g.swapped ? g.pair.b : g.pair.a), P2 = PlayerName.get(g.swapped ? g.pair.a : g.pair.b);
+				System.out.println(g.config[0] + "," + g.config[1] + "," + g.config[2] + " " + P1 + " - " + P2 + ": " + state);
+			}
+
+			if(state == MNKRound.GameState.EP1EX || state == MNKRound.GameState.EP2EX) {
+				verdict = "a player could not be stopped";
+			} else if(SPRT) {
+				double llr = llr(g.pair,ELO0,ELO1);
+				if(llr >= upper)      verdict = "H1 accepted";
+				else if(llr <= lower) verdict = "H0 accepted";
+			}
+		}
+		stop.set(true);
+
+		if(VERBOSE) System.out.println("\n**** FINAL RESULTS ****");
+		for(Pair p : pairs)
+			if(p.games() > 0)
+				System.out.println(format(p));
+		if(SPRT)
+			System.out.println(String.format("SPRT [%.1f, %.1f]: LLR %.2f [%.2f, %.2f] ",ELO0,ELO1,llr(pairs.get(0),ELO0,ELO1),lower,upper) +
+				(verdict != null ? verdict : "no hypothesis accepted"));
+		else if(verdict != null)
+			System.out.println("Tournament stopped: " + verdict);
+		System.exit(0);
+	}
+}
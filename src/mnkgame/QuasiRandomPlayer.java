@@ -65,7 +65,7 @@ public class QuasiRandomPlayer implements MNKPlayer {
 		long start = System.currentTimeMillis();
 		if(MC.length > 0) {
 			MNKCell c = MC[MC.length-1]; // Recover the last move from MC
-			B.markCell(c.i,c.j);         // Save the last move in the local MNKBoard
+			B.fastMarkCell(c.i*B.N+c.j); // Save the last move in the local MNKBoard
 		}
 		// If there is just one possible move, return immediately
 		if(FC.length == 1)
@@ -76,12 +76,12 @@ public class QuasiRandomPlayer implements MNKPlayer {
 			// If time is running out, select a random cell
 			if((System.currentTimeMillis()-start)/1000.0 > TIMEOUT*(99.0/100.0)) {
 				MNKCell c = FC[rand.nextInt(FC.length)];
-				B.markCell(c.i,c.j);
+				B.fastMarkCell(c.i*B.N+c.j);
 				return c;
-			} else if(B.markCell(d.i,d.j) == myWin) {
+			} else if(B.fastMarkCell(d.i*B.N+d.j) == myWin) {
 				return d;  
 			} else {
-				B.unmarkCell();
+				B.fastUnmarkCell();
 			}
 		}
 		
@@ -91,20 +91,20 @@ public class QuasiRandomPlayer implements MNKPlayer {
 		// 3. if he can win, select his winning position 
 		int pos   = rand.nextInt(FC.length); 
 		MNKCell c = FC[pos]; // random move
-		B.markCell(c.i,c.j); // mark the random position	
+		B.fastMarkCell(c.i*B.N+c.j); // mark the random position	
 		for(int k = 0; k < FC.length; k++) {
 			// If time is running out, return the randomly selected  cell
       if((System.currentTimeMillis()-start)/1000.0 > TIMEOUT*(99.0/100.0)) {
 				return c;
 			} else if(k != pos) {     
 				MNKCell d = FC[k];
-				if(B.markCell(d.i,d.j) == yourWin) {
-					B.unmarkCell();        // undo adversary move
-					B.unmarkCell();	       // undo my move	 
-					B.markCell(d.i,d.j);   // select his winning position
+				if(B.fastMarkCell(d.i*B.N+d.j) == yourWin) {
+					B.fastUnmarkCell();          // undo adversary move
+					B.fastUnmarkCell();	         // undo my move	 
+					B.fastMarkCell(d.i*B.N+d.j); // select his winning position
 					return d;							 // return his winning position
 				} else {
-					B.unmarkCell();	       // undo adversary move to try a new one
+					B.fastUnmarkCell();	         // undo adversary move to try a new one
 				}	
 			}	
 		}
@@ -0,0 +1,248 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates batches of positions in parallel, returning the best move of the player to move and its score,
+ * e.g. to label datasets or to suggest moves.
+ * <p>
+ * Every thread of the pool keeps a {@link CadregaBot} for every (M, N, K) configuration and player to move, and loads
+ * every position into it, so after the first position of a configuration the setup of a position costs only the copy
+ * of its board. Searches are limited by nodes or depth (see {@link SearchLimit}), so that the results are repeatable
+ * and don't depend on the number of threads nor on the order of the positions.
+ * <p>
+ * Usage: {@code BatchEvaluator [-n <nodes> | -d <depth>] [-j <threads>] [<positions>]}, which reads the positions
+ * (one per line, see {@link Position}, ignoring anything after {@code ;} and lines starting with {@code #}) from the
+ * file or from the standard input, and prints every position followed by {@code ; bm <i,j> ; score <score>}.
+ */
+public final class BatchEvaluator implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+
+    // The CadregaBots of every thread of the pool, by configuration and player to move
+    private final ThreadLocal<Map<Long, CadregaBot>> contexts = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * The evaluation of a position.
+     */
+    public static final class Result {
+        private final Position position;
+        private final MNKCell move;
+        private final int score, depth;
+        private final long nodes;
+        private final boolean completed;
+
+        private Result(Position position, MNKCell move, int score, SearchStats stats) {
+            this.position = position;
+            this.move = move;
+            this.score = score;
+            this.depth = stats.getDepth();
+            this.nodes = stats.getNodes();
+            this.completed = stats.isCompleted();
+        }
+
+        /**
+         * Returns the evaluated position.
+         *
+         * @return The position.
+         */
+        public Position getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the best move of the player to move.
+         *
+         * @return The best move.
+         */
+        public MNKCell getMove() {
+            return move;
+        }
+
+        /**
+         * Returns the score of the best move for the player to move (see {@link CadregaBot#OUR_VICTORY}): its
+         * alphabeta value or, if the search didn't start (e.g. the move was forced), its heuristic value.
+         *
+         * @return The score of the best move.
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Returns the depth of the visit.
+         *
+         * @return The depth of the visit.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns the number of visited nodes.
+         *
+         * @return The number of visited nodes.
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns whether the visit has been completed up to {@link #getDepth()} within the node budget.
+         *
+         * @return Whether the visit has been completed.
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public String toString() {
+            return position + " ; bm " + move.i + "," + move.j + " ; score " + score;
+        }
+    }
+
+    /**
+     * Creates a new {@code BatchEvaluator}.
+     *
+     * @param threads The number of threads, usually the number of processors.
+     */
+    public BatchEvaluator(int threads) {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Evaluates the provided positions in parallel.
+     *
+     * @param positions The positions. They must have at least one free cell.
+     * @param limit The search limit of every position, by nodes or depth.
+     * @return The evaluations, in the same order of the positions.
+     * @throws IllegalArgumentException If the limit is by time or a position has no free cells.
+     */
+    public Result[] evaluate(Position[] positions, SearchLimit limit) throws IllegalArgumentException {
+        checkLimit(limit);
+        Result[] results = new Result[positions.length];
+        pool.submit(() -> IntStream.range(0, positions.length).parallel()
+                .forEach(p -> results[p] = evaluateInContext(positions[p], limit))).join();
+        return results;
+    }
+
+    /**
+     * Evaluates the provided positions in parallel.
+     *
+     * @param positions The positions. They must have at least one free cell.
+     * @param limit The search limit of every position, by nodes or depth.
+     * @return The evaluations, in the same order of the positions.
+     * @throws IllegalArgumentException If the limit is by time or a position has no free cells.
+     */
+    public Result[] evaluate(Stream<Position> positions, SearchLimit limit) throws IllegalArgumentException {
+        return evaluate(positions.toArray(Position[]::new), limit);
+    }
+
+    /**
+     * Evaluates a position on the calling thread, with the context of that thread.
+     *
+     * @param position The position. It must have at least one free cell.
+     * @param limit The search limit, by nodes or depth.
+     * @return The evaluation.
+     * @throws IllegalArgumentException If the limit is by time or the position has no free cells.
+     */
+    public Result evaluate(Position position, SearchLimit limit) throws IllegalArgumentException {
+        checkLimit(limit);
+        return evaluateInContext(position, limit);
+    }
+
+    private static void checkLimit(SearchLimit limit) throws IllegalArgumentException {
+        if (limit.getType() == SearchLimit.Type.TIME) {
+            throw new IllegalArgumentException("Positions must be evaluated with a node or depth limit");
+        }
+    }
+
+    private Result evaluateInContext(Position position, SearchLimit limit) throws IllegalArgumentException {
+        MNKCell[] FC = position.getFreeCells();
+        if (FC.length == 0) {
+            throw new IllegalArgumentException("The position has no free cells: " + position);
+        }
+        MNKCell[] MC = position.getMarkedCells();
+        boolean first = position.getToMove() == MNKCellState.P1;
+        long key = (((long) position.M << 32 | position.N) << 16 | position.K) << 1 | (first ? 1 : 0);
+        CadregaBot bot = contexts.get().computeIfAbsent(key, k -> {
+            CadregaBot newBot = new CadregaBot();
+            newBot.setSearchLimit(limit); // Not limited by time, so initPlayer doesn't calibrate
+            newBot.setTranspositionTable(null); // A shared table would make the results depend on the order
+            newBot.initPlayer(position.M, position.N, position.K, first, 10);
+            return newBot;
+        });
+        bot.setSearchLimit(limit);
+        bot.loadPosition(MC);
+        MNKCell move = bot.selectCell(FC, MC);
+        return new Result(position, move, bot.getBestScore(), bot.getSearchStats());
+    }
+
+    /**
+     * Shuts down the threads of the pool.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException {
+        SearchLimit limit = SearchLimit.nodes(1_000_000);
+        int threads = Runtime.getRuntime().availableProcessors();
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                file = args[i];
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected parameter after " + args[i]);
+            }
+            switch (args[i]) {
+                case "-n":
+                    limit = SearchLimit.nodes(Long.parseLong(args[++i]));
+                    break;
+                case "-d":
+                    limit = SearchLimit.depth(Integer.parseInt(args[++i]));
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: BatchEvaluator [-n <nodes> | -d <depth>] [-j <threads>] [<positions>]");
+                    System.exit(1);
+            }
+        }
+
+        long start = System.nanoTime();
+        Result[] results;
+        try (BufferedReader reader = file != null ? Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+             BatchEvaluator evaluator = new BatchEvaluator(threads)) {
+            results = evaluator.evaluate(reader.lines().map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(line -> Position.parse(line.split(";")[0])), limit);
+        }
+        StringBuilder out = new StringBuilder();
+        for (Result result : results) {
+            out.append(result).append(System.lineSeparator());
+        }
+        System.out.print(out);
+        System.err.println(String.format(Locale.ROOT, "%d positions (%s) in %.1f s", results.length, limit,
+                (System.nanoTime() - start) / 1e9));
+    }
+}
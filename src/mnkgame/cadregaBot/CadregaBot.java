@@ -1,13 +1,16 @@
 package mnkgame.cadregaBot;
 
+import mnkgame.GameLogWriter;
+import mnkgame.MNKBoard;
 import mnkgame.MNKCell;
 import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
 import mnkgame.MNKPlayer;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.Random;
 
 /**
  * Questo qua mi convince proprio poco poco poco...
@@ -21,26 +24,111 @@ public final class CadregaBot implements MNKPlayer {
 
     public static final int OUR_VICTORY = Integer.MAX_VALUE - 1, OPPONENT_VICTORY = Integer.MAX_VALUE - 2;
     private static final int DEFAULT_DEPTH = 6;
+    private static final int CHECK_FRACTION = 10; // The fraction of the initPlayer time used by the check search (see calibrate)
+    private static final int WARM_UP_DEPTH = 2; // The depth of the searches of the warm-up (see warmUp)
     private int depth = DEFAULT_DEPTH;
 
     private int M, N, K;
 
     // Variables used to keep track of selectCell's execution time
     private long timeout, startTime, oldExecutionTime = -1;
+    private long defaultTimeout = -1; // The time given to selectCell by initPlayer, before applying the search limit
+    private volatile boolean stopRequested; // Set by stop() to abort the current search
+    private long treeBudget; // Maximum estimated heap of the tree visited by a search, in bytes (see SearchStats)
+
+    // The criterion used to stop the search (see SearchLimit) and the values derived from it for the current search
+    private SearchLimit searchLimit;
+    private Clock clock;
+    private boolean timeLimited;
+    private long maxNodes;
 
     private MNKCellState[][] board, tmpBoard; // board reflects the actual board state, tmpBoard is used for computations
     private MNKCellState our, opponent;
     private EvaluateUtil evaluateUtil;
+    private WindowIndex windowIndex; // Keeps track of the windows still live on tmpBoard
+    private FreeCells freeCells; // The free cells of tmpBoard
     private Node root, bestMove; // root is the first node analyzed of the tree, bestMove is the best move found yet
+    private MNKCell[] boardCells; // The free MNKCells of the board, indexed by i * N + j (see MoveUtil), shared (see EngineTables)
+
+    // Scratch buffers used by complexEvaluateTmpBoard, so that generating the moves doesn't allocate memory
+    private long[] moveBuffer, sortBuffer;
+    private final int[] sortCounts = new int[256];
 
     // Variables used to calculate the visit depth
     private long nodeCounter, nodesAverage;
     private boolean alphabetaStarted;
 
+    private int boardMoves; // Number of marked cells of board, used to check that board is consistent with MC
+    private int bestScore; // The value of the move selected by the last selectCell
+
+    private final SearchStats stats = new SearchStats(); // Statistics of the last selectCell
+    private boolean logStats; // Whether the statistics are printed after every selectCell
+    private final EngineMetrics metrics = EngineMetrics.get(); // Updated after every selectCell
+    private boolean initializing; // Whether selectCell is run on the dummy board of initPlayer
+    private final GameLogWriter moveLog; // Log of the selected moves, null if disabled (see MoveLog)
+    private int[] rootMoves; // The only cells searched at the root, null if the search is not restricted
+    private final CalibrationCache calibrations; // The persisted calibrations, null if disabled (see calibrate)
+    private double warmUp; // The fraction of the initPlayer time used to warm up the JIT (see warmUp)
+    private boolean firstMove; // Whether the next selectCell selects the first move of the game
+    private final boolean parallelRootEnabled; // Whether the root can be evaluated in parallel (see generateRootMoves)
+    private ParallelRootScan parallelRoot;
+
+    // The transposition table (null if disabled) and the Zobrist hash of tmpBoard, kept by makeMove and unmakeMove
+    private TranspositionTable transpositions;
+    private EngineTables tables;
+    private long hash, perspective; // perspective is XORed to the keys, since the scores are from the point of view of our
+    private int transpositionAge;
+
     /**
-     * Empty constructor
+     * Empty constructor. The search limit is read from the system properties (see {@link SearchLimit#fromSystemProperties()}).
+     * If the system property {@code cadregaBot.stats} is {@code true}, the statistics of every search
+     * (see {@link SearchStats}) are printed to the standard error. If the system property {@code cadregaBot.log}
+     * is set, every selected move is appended to that binary log (see {@link GameLogWriter}). The system property
+     * {@code cadregaBot.treeBudget} sets the default of {@link #setTreeBudget(long)}. If the system property
+     * {@code cadregaBot.calibration} is set, the calibrations of initPlayer are persisted to that file (see {@link CalibrationCache}).
+     * The system property {@code cadregaBot.warmUp} sets the default of {@link #setWarmUp(double)}. If the system
+     * property {@code cadregaBot.parallelRoot} is {@code false}, the root is always evaluated by a single thread.
+     * The system property {@code cadregaBot.tt} enables the shared transposition table (see {@link TranspositionTable}).
+     *
+     * @throws IllegalArgumentException If the system properties are not valid.
      */
-    public CadregaBot() {
+    public CadregaBot() throws IllegalArgumentException {
+        this.searchLimit = SearchLimit.fromSystemProperties();
+        this.logStats = Boolean.getBoolean("cadregaBot.stats");
+        this.moveLog = MoveLog.WRITER;
+        this.treeBudget = Long.getLong("cadregaBot.treeBudget", Long.MAX_VALUE);
+        this.calibrations = CalibrationCache.INSTANCE;
+        setWarmUp(Double.parseDouble(System.getProperty("cadregaBot.warmUp", "0")));
+        this.parallelRootEnabled = !"false".equals(System.getProperty("cadregaBot.parallelRoot"));
+        this.transpositions = TranspositionTable.shared();
+    }
+
+    /**
+     * The log of the moves selected by all the {@code CadregaBot}s of the JVM, opened when the first one is created
+     * and closed at the shutdown of the JVM. Moves are written by a background thread, so logging doesn't slow down selectCell.
+     */
+    private static final class MoveLog {
+        static final GameLogWriter WRITER = open(System.getProperty("cadregaBot.log"));
+
+        private static GameLogWriter open(String file) {
+            if (file == null) {
+                return null;
+            }
+            try {
+                GameLogWriter writer = new GameLogWriter(Paths.get(file));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        System.err.println("CadregaBot: cannot write " + file + ": " + e);
+                    }
+                }));
+                return writer;
+            } catch (IOException e) {
+                System.err.println("CadregaBot: cannot open " + file + ": " + e);
+                return null;
+            }
+        }
     }
 
     /**
@@ -57,7 +145,7 @@ public final class CadregaBot implements MNKPlayer {
         this.M = M;
         this.N = N;
         this.K = K;
-        this.timeout = (timeout_in_secs * 1000L) - 1000L; // Keeping a margin of a second for the initialization
+        this.timeout = timeLimit((timeout_in_secs * 1000L) - 1000L); // Keeping a margin of a second for the initialization
 
         // Reset fields
         this.depth = DEFAULT_DEPTH;
@@ -68,10 +156,15 @@ public final class CadregaBot implements MNKPlayer {
         this.nodeCounter = 0;
         this.nodesAverage = 0;
         this.alphabetaStarted = false;
+        this.boardMoves = 0;
 
         // Create the boards and initialize them
         this.board = new MNKCellState[M][N];
         this.tmpBoard = new MNKCellState[M][N];
+        this.tables = EngineTables.of(M, N, K);
+        this.boardCells = tables.boardCells;
+        this.moveBuffer = new long[M * N];
+        this.sortBuffer = new long[M * N];
 
         for (int i = 0; i < M; i++) {
             for (int j = 0; j < N; j++) {
@@ -106,7 +199,7 @@ public final class CadregaBot implements MNKPlayer {
         for (int i = 0; i < M; i++) {
             for (int j = 0; j < N; j++) {
                 if (this.board[i][j] == MNKCellState.FREE) { // Always true if we're the first moving
-                    FC[n++] = new MNKCell(i, j, MNKCellState.FREE);
+                    FC[n++] = boardCells[i * N + j];
                 } else {
                     MC[k++] = new MNKCell(i, j, this.board[i][j]);
                 }
@@ -118,10 +211,26 @@ public final class CadregaBot implements MNKPlayer {
         copyTmpBoard();
 
         this.evaluateUtil = new EvaluateUtil(M, N, K, tmpBoard);
+        this.windowIndex = new WindowIndex(tables, tmpBoard);
+        this.freeCells = new FreeCells(M, N, tmpBoard);
+        this.parallelRoot = parallelRootEnabled ? new ParallelRootScan(N, evaluateUtil, windowIndex, boardCells) : null;
 
+        // The statistics of the dummy selectCell are not logged nor recorded into the metrics
+        this.initializing = true;
         try {
-            if (FC.length > 0) { // Don't execute selectCell with zero free cells (this happens on (1, 1, 1) games when we are the second player)
-                selectCell(FC, MC);
+            // Don't execute selectCell with zero free cells (this happens on (1, 1, 1) games when we are the second player)
+            // The data is needed only when the search is limited by time
+            if (FC.length > 0 && searchLimit.getType() == SearchLimit.Type.TIME) {
+                if (warmUp > 0) {
+                    long initTimeout = timeout;
+                    timeout = Math.max(1, initTimeout - warmUp((long) (initTimeout * warmUp), first));
+                    resetDummySearch();
+                }
+                if (calibrations == null) {
+                    selectCell(FC, MC);
+                } else {
+                    calibrate(FC, MC, first);
+                }
             }
         } catch (Exception ignored) {
             // System.out.println("TIMEOUT");
@@ -135,13 +244,157 @@ public final class CadregaBot implements MNKPlayer {
 
             copyTmpBoard();
 
+            this.boardMoves = 0;
             this.root = null;
             this.bestMove = null;
             this.depth = DEFAULT_DEPTH;
+            this.initializing = false;
+            this.firstMove = true;
 
             // For the "real" selectCell we want a margin of only half a second
-            this.timeout = (timeout_in_secs * 1000L) - 500L;
+            this.defaultTimeout = (timeout_in_secs * 1000L) - 500L;
+            this.timeout = timeLimit(defaultTimeout);
+        }
+    }
+
+    /**
+     * Runs selectCell on the dummy board using the persisted calibrations: a short check search measures the speed of
+     * this machine and, if it matches the cached one, the calibration of the cache replaces the dummy search.
+     * Otherwise the dummy search runs for the rest of the time and its result is stored into the cache.
+     *
+     * @param FC The free cells of the dummy board.
+     * @param MC The marked cells of the dummy board.
+     * @param first Whether we are the first player.
+     */
+    private void calibrate(MNKCell[] FC, MNKCell[] MC, boolean first) {
+        long fullTimeout = timeout;
+        timeout = Math.max(1, fullTimeout / CHECK_FRACTION);
+        selectCell(FC, MC);
+        long checkNodes = nodeCounter, checkMillis = oldExecutionTime;
+        timeout = fullTimeout;
+
+        CalibrationCache.Calibration cached = calibrations.get(M, N, K, first);
+        if (cached != null && cached.matches(checkNodes, checkMillis)) {
+            // Scale a calibration measured with a longer timeout, as if its dummy search had been stopped by this one
+            boolean longer = cached.millis > fullTimeout;
+            nodeCounter = longer ? (long) ((double) cached.nodes * fullTimeout / cached.millis) : cached.nodes;
+            oldExecutionTime = longer ? fullTimeout : cached.millis;
+            alphabetaStarted = cached.alphabetaStarted;
+            return;
+        }
+        if (!stats.isCompleted()) {
+            // Run the dummy search again from scratch, since the check search may not have started alphabeta
+            resetDummySearch();
+            this.timeout = Math.max(1, fullTimeout - checkMillis);
+            try {
+                selectCell(FC, MC);
+            } finally {
+                timeout = fullTimeout;
+            }
+        } // Else the check search has already visited the whole dummy tree
+        calibrations.put(M, N, K, first, new CalibrationCache.Calibration(checkNodes, checkMillis, nodeCounter,
+                oldExecutionTime, alphabetaStarted));
+    }
+
+    /**
+     * Warms up the JIT by running short searches on random positions of the current (M, N, K) in which we are the
+     * player to move, so that the first move runs compiled code. The positions are played near the marked cells, like
+     * the middle of a game, and the same positions are generated on every run. The searches are limited by depth
+     * rather than by nodes, so that they end normally: aborting thousands of searches would make the JIT optimize
+     * the search for the abort.
+     *
+     * @param millis The time available for the warm-up, in milliseconds. The last search can exceed it.
+     * @param first Whether we are the first player.
+     * @return The time taken by the warm-up, in milliseconds.
+     */
+    private long warmUp(long millis, boolean first) {
+        long start = System.currentTimeMillis();
+        SearchLimit limit = searchLimit;
+        searchLimit = SearchLimit.depth(WARM_UP_DEPTH);
+        Random random = new Random(M * 31L * 31L + N * 31L + K);
+        int positions = 0;
+        try {
+            while (System.currentTimeMillis() - start < millis) {
+                MNKBoard position = new MNKBoard(M, N, K);
+                int moves = random.nextInt(Math.max(1, Math.min(M * N / 3, 4 * K))) + 1;
+                while ((position.getMarkedCells().length < moves || (position.currentPlayer() == 0) != first)
+                        && position.getFreeCells().length > 1) {
+                    MNKCell[] marked = position.getMarkedCells(), free = position.getFreeCells();
+                    MNKCell cell = free[random.nextInt(free.length)];
+                    if (marked.length > 0 && random.nextInt(5) > 0) { // Play near a marked cell
+                        MNKCell near = marked[random.nextInt(marked.length)];
+                        int i = near.i + random.nextInt(5) - 2, j = near.j + random.nextInt(5) - 2;
+                        if (i >= 0 && i < M && j >= 0 && j < N && position.cellState(i, j) == MNKCellState.FREE) {
+                            cell = new MNKCell(i, j);
+                        }
+                    }
+                    if (position.markCell(cell.i, cell.j) != MNKGameState.OPEN) {
+                        position.unmarkCell(); // The position must not be already won
+                        break;
+                    }
+                }
+                if ((position.currentPlayer() == 0) != first) {
+                    continue;
+                }
+                MNKCell[] MC = position.getMarkedCells();
+                loadPosition(MC);
+                selectCell(position.getFreeCells(), MC);
+                positions++;
+            }
+        } finally {
+            searchLimit = limit;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        if (logStats) {
+            System.err.println("CadregaBot: warm-up " + positions + " positions in " + elapsed + " ms");
+        }
+        return elapsed;
+    }
+
+    /**
+     * Clears the board and the data of the previous searches, so that selectCell can run again on the dummy board.
+     */
+    private void resetDummySearch() {
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                board[i][j] = MNKCellState.FREE;
+            }
         }
+        this.boardMoves = 0;
+        this.root = null;
+        this.bestMove = null;
+        this.nodeCounter = 0;
+        this.oldExecutionTime = -1;
+        this.alphabetaStarted = false;
+    }
+
+    /**
+     * Sets the fraction of the time of initPlayer used to warm up the JIT with short searches on random positions,
+     * before calibrating the speed of the search, so that the first move runs compiled code and reaches the depth of
+     * the following ones. The depth of the first move is exposed by {@link EngineMetrics#getFirstMoveDepth()}.
+     * The warm-up runs only when the search is limited by time.
+     *
+     * @param fraction The fraction of the time, from 0 (no warm-up, the default) to 0.9.
+     * @throws IllegalArgumentException If the fraction is not valid.
+     */
+    public void setWarmUp(double fraction) throws IllegalArgumentException {
+        if (!(fraction >= 0 && fraction <= 0.9)) {
+            throw new IllegalArgumentException("The warm-up fraction must be between 0 and 0.9");
+        }
+        this.warmUp = fraction;
+    }
+
+    /**
+     * Returns the time available to selectCell: the provided default one, unless the search limit sets a shorter time.
+     *
+     * @param defaultTimeout The default time available, in milliseconds.
+     * @return The time available, in milliseconds.
+     */
+    private long timeLimit(long defaultTimeout) {
+        if (searchLimit.getType() == SearchLimit.Type.TIME && searchLimit.getValue() > 0) {
+            return Math.min(searchLimit.getValue(), defaultTimeout);
+        }
+        return defaultTimeout;
     }
 
     /**
@@ -153,11 +406,26 @@ public final class CadregaBot implements MNKPlayer {
      */
     @Override
     public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC) {
-        startTime = System.currentTimeMillis();
+        long selectCellStart = System.nanoTime();
+        SearchEvents.SelectCell selectCellEvent = new SearchEvents.SelectCell();
+        selectCellEvent.begin();
+        clock = searchLimit.getClock();
+        timeLimited = searchLimit.getType() == SearchLimit.Type.TIME;
+        maxNodes = searchLimit.getType() == SearchLimit.Type.NODES ? searchLimit.getValue() : Long.MAX_VALUE;
+        startTime = clock.millis();
+        // long allocatedBytes = DebugUtil.allocatedBytes(), gcCount = DebugUtil.gcCount();
         // System.out.println("Loading...");
 
         // Calculates the visit depth
-        if (nodeCounter == 0) {
+        if (searchLimit.getType() == SearchLimit.Type.DEPTH) {
+            // Fixed depth visit, no need to calibrate
+            nodeCounter = 0;
+            depth = (int) searchLimit.getValue();
+        } else if (searchLimit.getType() == SearchLimit.Type.NODES) {
+            // The number of nodes to visit is known, no need to calibrate
+            nodeCounter = 0;
+            depth = OptimizedDepth.optimizedDepth(3, FC.length, maxNodes);
+        } else if (nodeCounter == 0) {
             // Corner case (which should happen only the first time selectCell is run in initPlayer)
             depth = DEFAULT_DEPTH;
             // System.out.println("Default depth: " + depth);
@@ -206,61 +474,145 @@ public final class CadregaBot implements MNKPlayer {
         }
 
         // System.out.println("Nodes average: " + nodesAverage);
+        stats.start(depth);
 
         // Update board with opponent's move
         MNKCell lastOpponentMove = null;
         if (MC.length > 0) {
             lastOpponentMove = MC[MC.length - 1];
-            board[lastOpponentMove.i][lastOpponentMove.j] = lastOpponentMove.state;
+            if (board[lastOpponentMove.i][lastOpponentMove.j] == MNKCellState.FREE) {
+                board[lastOpponentMove.i][lastOpponentMove.j] = lastOpponentMove.state;
+                boardMoves++;
+            }
         }
 
-        // Update tmpBoard
-        copyTmpBoard();
+        // If board doesn't match MC (i.e. MC doesn't continue the game of the previous rounds), rebuild it from MC
+        MNKCell lastOurMove = MC.length > 1 ? MC[MC.length - 2] : null;
+        if (boardMoves != MC.length || (lastOurMove != null && board[lastOurMove.i][lastOurMove.j] != lastOurMove.state)) {
+            loadPosition(MC);
+            lastOpponentMove = null; // The tree of the previous rounds is not valid
+        }
 
-        // Using a hash table for O(1) operations
-        Set<MNKCell> freeCellsSet = new HashSet<>(Arrays.asList(FC));
+        // Update tmpBoard, windowIndex and freeCells
+        copyTmpBoard();
+        windowIndex.reset();
+        freeCells.reset();
+        hash = tables.hash(tmpBoard);
+        perspective = our == MNKCellState.P2 ? tables.perspectiveP2 : 0;
+        if (transpositions != null) {
+            transpositionAge = transpositions.newSearch();
+        }
 
         // Updates the tree (calculated in previous rounds) discarding the branches of the not selected moves
         // If it hasn't been calculated it runs the heuristic on the current table
-        EvaluatedCell[] cells;
-        if (bestMove != null && lastOpponentMove != null /* So it is not the first round */) {
-            Node child = bestMove.selectChildByMove(lastOpponentMove); // Search if the opponent has made a move we already computed in previous rounds
-            if (child != null) {
-                root = child;
-                root.setParent(null);
-                cells = root.getSortedCells();
-            } else {
-                cells = complexEvaluateTmpBoard(freeCellsSet, our);
-                root = new Node(null, null, cells);
+        Node child = null;
+        if (bestMove != null && lastOpponentMove != null /* So it is not the first round and the tree is valid */) {
+            SearchEvents.Reroot rerootEvent = new SearchEvents.Reroot();
+            rerootEvent.begin();
+            child = bestMove.selectChildByMove(lastOpponentMove.i * N + lastOpponentMove.j); // Search if the opponent has made a move we already computed in previous rounds
+            if (rerootEvent.shouldCommit()) {
+                rerootEvent.opponentMove = lastOpponentMove.i + "," + lastOpponentMove.j;
+                rerootEvent.hit = child != null;
+                rerootEvent.commit();
             }
+        }
+        if (child != null) {
+            stats.rootReused();
+            root = child;
+            root.setParent(null);
         } else {
-            cells = complexEvaluateTmpBoard(freeCellsSet, our);
-            root = new Node(null, null, cells);
+            root = new Node(-1, null);
+        }
+        // The root is visited entirely (unless we win), so its moves are sorted immediately when they are generated
+        SearchEvents.RootEvaluation rootEvaluationEvent = new SearchEvents.RootEvaluation();
+        rootEvaluationEvent.begin();
+        boolean rootHadMoves = root.hasMoves();
+        generateRootMoves();
+        if (rootMoves != null) {
+            restrictRootMoves();
+        }
+        stats.expanded(root.getMoveCount());
+        if (rootEvaluationEvent.shouldCommit()) {
+            rootEvaluationEvent.moves = root.getMoveCount();
+            rootEvaluationEvent.reused = rootHadMoves;
+            rootEvaluationEvent.commit();
         }
 
-        // DebugUtil.printTable(board, cells);
+        // DebugUtil.printTable(board, root.getMoves());
 
         bestMove = null;
 
+        SearchEvents.Search searchEvent = new SearchEvents.Search();
+        searchEvent.begin();
+        String abortReason = null;
         try {
             // alphabetaStart(rootNode, −∞, +∞, depth, freeCells)
             // -Integer.MAX_VALUE is used instead of Integer.MIN_VALUE because -Integer.MIN_VALUE overflows (due to two's complement)
-            alphabetaStart(root, -Integer.MAX_VALUE, Integer.MAX_VALUE, depth, freeCellsSet);
-        } catch (Exception ignored) {
+            alphabetaStart(root, -Integer.MAX_VALUE, Integer.MAX_VALUE, depth, freeCells);
+            if (alphabetaStarted) {
+                stats.completed();
+            }
+        } catch (Exception e) {
             // System.out.println("TIMEOUT");
+            abortReason = e.getMessage();
+            SearchEvents.Abort abortEvent = new SearchEvents.Abort();
+            if (abortEvent.shouldCommit()) {
+                abortEvent.reason = e.getMessage();
+                abortEvent.depth = depth;
+                abortEvent.nodes = nodeCounter;
+                abortEvent.commit();
+            }
+        }
+        if (searchEvent.shouldCommit()) {
+            searchEvent.depth = depth;
+            searchEvent.nodes = nodeCounter;
+            searchEvent.completed = stats.isCompleted();
+            searchEvent.result = stats.isCompleted() ? bestScore : 0;
+            searchEvent.commit();
         }
 
-        oldExecutionTime = System.currentTimeMillis() - startTime;
+        oldExecutionTime = clock.millis() - startTime;
+        stats.stop();
+        if (logStats && !initializing) {
+            System.err.println("CadregaBot: " + (firstMove ? "first move " : "") + stats);
+        }
 
         // System.out.print("Best move: ");
-        // System.out.println(bestMove != null ? bestMove.getCell().getCell().i + " " + bestMove.getCell().getCell().j : "null");
+        // System.out.println(bestMove != null ? boardCells[MoveUtil.getCell(bestMove.getMove())] : "null");
         // System.out.println("Nodes counted this round: " + nodeCounter + " in " + oldExecutionTime + " ms");
+        // System.out.println("Allocated " + (DebugUtil.allocatedBytes() - allocatedBytes) + " bytes, GCs: " + (DebugUtil.gcCount() - gcCount));
         // System.out.println("");
 
         // Save the selected move into this.board and returns it
         // bestMove is null when we block an opponent win, we can win in a move or the first branch of the tree hasn't been completely visited in time
-        // In all of those cases the best move to do is the one indicated by the heuristic, so cells[0]
-        return saveMove(bestMove == null ? cells[0].getCell() : bestMove.getCell().getCell());
+        // In all of those cases the best move to do is the one indicated by the heuristic, so the first move of root
+        // root has no moves only when the game is already a draw (see WindowIndex), so any free cell is fine
+        MNKCell selected;
+        if (bestMove == null) {
+            bestScore = root.getMoveCount() == 0 ? 0 : MoveUtil.getValue(root.getMove(0));
+            selected = root.getMoveCount() == 0 ? FC[0] : boardCells[MoveUtil.getCell(root.getMove(0))];
+        } else {
+            selected = boardCells[MoveUtil.getCell(bestMove.getMove())];
+        }
+
+        if (selectCellEvent.shouldCommit()) {
+            selectCellEvent.freeCells = FC.length;
+            selectCellEvent.depth = depth;
+            selectCellEvent.nodes = nodeCounter;
+            selectCellEvent.move = selected.i + "," + selected.j;
+            selectCellEvent.score = bestScore;
+            selectCellEvent.commit();
+        }
+        if (!initializing) {
+            metrics.recordMove(stats, abortReason, bestMove == null, firstMove, System.nanoTime() - selectCellStart);
+            firstMove = false;
+            if (moveLog != null) {
+                moveLog.writeMove(M, N, K, playerName(), MC, selected, (System.nanoTime() - selectCellStart) / 1_000_000L,
+                        stats.getDepthReached(), bestScore);
+            }
+        }
+        stopRequested = false;
+        return saveMove(selected);
     }
 
     /**
@@ -273,18 +625,135 @@ public final class CadregaBot implements MNKPlayer {
     }
 
     /**
-     * Throws a {@link RuntimeException} if the time has run out.
+     * Throws a {@link RuntimeException} if the search limit has been reached (see {@link SearchLimit}).
      *
-     * @throws RuntimeException If the time has run out.
+     * @throws RuntimeException If the search limit has been reached.
      */
-    private void checkTime() throws RuntimeException {
-        if (System.currentTimeMillis() - startTime >= timeout) {
+    private void checkLimit() throws RuntimeException {
+        if (nodeCounter >= maxNodes) {
+            throw new RuntimeException("NODE LIMIT");
+        }
+        if (timeLimited && clock.millis() - startTime >= timeout) {
             throw new RuntimeException("TIMEOUT");
         }
+        if (stopRequested) {
+            throw new RuntimeException("STOPPED");
+        }
+        if (stats.getEstimatedTreeBytes() >= treeBudget) {
+            throw new RuntimeException("MEMORY LIMIT");
+        }
+    }
+
+    /**
+     * Sets the maximum heap that the tree visited by a search can take, as estimated by
+     * {@link SearchStats#getEstimatedTreeBytes()}: when it is reached, the search stops like when the time runs out.
+     * The parts of the tree kept from the previous move which are not visited again are not counted, so the tree can
+     * take up to twice the budget.
+     *
+     * @param bytes The budget in bytes, {@link Long#MAX_VALUE} for no budget.
+     */
+    public void setTreeBudget(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("The tree budget must be larger than 0");
+        }
+        this.treeBudget = bytes;
+    }
+
+    /**
+     * Sets the transposition table used by the search, which can be shared with other {@code CadregaBot}s.
+     * By default it is the one set by the system property {@code cadregaBot.tt} (see {@link TranspositionTable#shared()}).
+     *
+     * @param transpositions The transposition table, {@code null} to disable it.
+     */
+    public void setTranspositionTable(TranspositionTable transpositions) {
+        this.transpositions = transpositions;
+    }
+
+    /**
+     * Stores a score of the current position (see {@link #hash}) into the transposition table, if it is enabled.
+     *
+     * @param value The score.
+     * @param ply The distance of the position from the root.
+     * @param depth The remaining depth of the search of the score.
+     * @param bound The type of bound of the score (see {@link TranspositionTable}).
+     */
+    private void storeTransposition(int value, int ply, int depth, int bound) {
+        if (transpositions != null && Math.abs(value) < Integer.MAX_VALUE) {
+            transpositions.store(hash ^ perspective, toTransposition(value, ply), depth, bound, transpositionAge);
+        }
+    }
+
+    /**
+     * Converts a score of a position into the score stored into the transposition table: the scores of won and lost
+     * games depend on the distance of the end of the game from the root, so they are stored relative to the position.
+     *
+     * @param value The score.
+     * @param ply The distance of the position from the root.
+     * @return The stored score.
+     */
+    private int toTransposition(int value, int ply) {
+        int decisive = OUR_VICTORY - M * N;
+        return value > decisive ? value + ply : value < -decisive ? value - ply : value;
+    }
+
+    /**
+     * Reverts {@link #toTransposition(int, int)}.
+     *
+     * @param value The stored score.
+     * @param ply The distance of the position from the root.
+     * @return The score.
+     */
+    private int fromTransposition(int value, int ply) {
+        int decisive = OUR_VICTORY - M * N;
+        return value > decisive ? value - ply : value < -decisive ? value + ply : value;
     }
 
     /**
-     * This function is invoked by {@link #alphabetaStart(Node, int, int, int, Set)} and visits the
+     * Stops the current search as soon as possible: selectCell returns the best move found so far.
+     * If no search is running, the next one stops immediately. Can be called from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Cancels a {@link #stop()} which arrived when no search was running, so that the next search isn't stopped.
+     * It must not be called while a search is running.
+     */
+    public void cancelStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Marks the provided cell for the provided player, updating tmpBoard, windowIndex and FC.
+     *
+     * @param cell The cell to mark.
+     * @param player The player who makes the move.
+     * @param FC The free cells.
+     */
+    private void makeMove(MNKCell cell, MNKCellState player, FreeCells FC) {
+        tmpBoard[cell.i][cell.j] = player;
+        windowIndex.mark(cell.i, cell.j, player);
+        FC.remove(cell.i * N + cell.j);
+        hash ^= tables.zobrist(cell.i * N + cell.j, player);
+    }
+
+    /**
+     * Reverts {@link #makeMove(MNKCell, MNKCellState, FreeCells)}. Moves must be reverted in the reverse order they were made.
+     *
+     * @param cell The cell to unmark.
+     * @param player The player who made the move.
+     * @param FC The free cells.
+     */
+    private void unmakeMove(MNKCell cell, MNKCellState player, FreeCells FC) {
+        tmpBoard[cell.i][cell.j] = MNKCellState.FREE;
+        windowIndex.unmark(cell.i, cell.j, player);
+        FC.restore(cell.i * N + cell.j);
+        hash ^= tables.zobrist(cell.i * N + cell.j, player);
+    }
+
+    /**
+     * This function is invoked by {@link #alphabetaStart(Node, int, int, int, FreeCells)} and visits the
      * provided tree using the alphabeta algorithm.
      *
      * @param node The tree.
@@ -292,58 +761,79 @@ public final class CadregaBot implements MNKPlayer {
      * @param beta The beta value inherited from the parent.
      * @param depth The depth of the visit.
      * @param player Indicates whose turn it is.
-     * @param FC The set containing the free cells.
+     * @param FC The free cells.
      * @return The result of the alphabeta visit.
      */
-    private int alphabeta(Node node, int alpha, int beta, int depth, MNKCellState player, Set<MNKCell> FC) {
-        checkTime();
+    private int alphabeta(Node node, int alpha, int beta, int depth, MNKCellState player, FreeCells FC) {
+        checkLimit();
 
         // Keep track of analyzed nodes
         nodeCounter++;
+        stats.node(this.depth - depth);
 
-        if (node.getSortedCells().length == 0) {
+        if (windowIndex.isDraw()) {
+            stats.leaf();
             return 0; // Draw
         }
-        if (node.getSortedCells().length == 1 && node.getSortedCells()[0].getValue() >= OUR_VICTORY) {
+
+        // Use the score of the transposition table if it is valid for this window
+        int ply = this.depth - depth;
+        if (transpositions != null) {
+            long entry = transpositions.probe(hash ^ perspective);
+            if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTransposition(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    stats.transpositionHit();
+                    return score;
+                }
+            }
+        }
+
+        if (hasWinningMove(node, FC, player)) {
+            stats.leaf();
             // A player has won
             // Returns a value that takes into consideration the amount of moves that it takes to win in order to be more aggressive
-            if (player == our) {
-                return OUR_VICTORY - (this.depth - depth);
-            } else {
-                return -OUR_VICTORY + (this.depth - depth);
-            }
+            int value = player == our ? OUR_VICTORY - ply : -OUR_VICTORY + ply;
+            storeTransposition(value, ply, Integer.MAX_VALUE, TranspositionTable.EXACT); // Exact at any depth
+            return value;
         }
         if (depth == 0) {
             // Stops the visit and returns the heuristic value of this configuration
-            return simpleEvaluateTmpBoard(FC);
+            // The moves of this node are not generated
+            stats.leaf();
+            int value = simpleEvaluateTmpBoard(FC);
+            storeTransposition(value, ply, 0, TranspositionTable.EXACT);
+            return value;
         }
+        int alphaStart = alpha, betaStart = beta;
+
+        generateMoves(node, FC, player, false);
+        stats.expanded(node.getMoveCount());
 
         // Values needed by alphabeta
         int value;
         Node[] children = node.getChildren();
-        EvaluatedCell[] cells = node.getSortedCells();
 
         if (player == our) {
             value = -Integer.MAX_VALUE;
-            for (int i = 0; i < cells.length; i++) {
-                EvaluatedCell cell = cells[i];
+            for (int i = 0; i < node.getMoveCount(); i++) {
+                long move = node.getMove(i); // Selects the next best move
+                MNKCell cell = boardCells[MoveUtil.getCell(move)];
 
-                // Update tmpBoard and FC before calling alphabeta recursively
-                tmpBoard[cell.getCell().i][cell.getCell().j] = our;
-                FC.remove(cell.getCell());
+                // Update tmpBoard, windowIndex and FC before calling alphabeta recursively
+                makeMove(cell, our, FC);
 
                 // Create (or get) the child node
                 Node child;
-                if (children != null) {
+                if (children != null && children[i] != null) {
                     child = children[i];
-                    if (child == null) {
-                        EvaluatedCell[] evaluatedCells = complexEvaluateTmpBoard(FC, opponent);
-                        child = node.addChild(cell, evaluatedCells);
-                    }
+                    stats.reusedChild();
                 } else {
-                    EvaluatedCell[] evaluatedCells = complexEvaluateTmpBoard(FC, opponent);
-                    child = node.addChild(cell, evaluatedCells); // Instantiate node.getChildren() array
+                    child = node.addChild(move); // Instantiates node.getChildren() array if needed
                     children = node.getChildren();
+                    stats.createdChild();
                 }
 
                 // Calls alphabeta recursively
@@ -352,36 +842,33 @@ public final class CadregaBot implements MNKPlayer {
                 value = Math.max(value, alphabeta);
                 alpha = Math.max(value, alpha);
 
-                // Restore tmpBoard and FC
-                tmpBoard[cell.getCell().i][cell.getCell().j] = MNKCellState.FREE;
-                FC.add(cell.getCell());
+                // Restore tmpBoard, windowIndex and FC
+                unmakeMove(cell, our, FC);
 
                 // alphabeta cutoff
                 if (beta <= alpha) {
+                    stats.cutoff(i);
                     break;
                 }
             }
         } else {
             value = Integer.MAX_VALUE;
-            for (int i = 0; i < cells.length; i++) {
-                EvaluatedCell cell = cells[i];
+            for (int i = 0; i < node.getMoveCount(); i++) {
+                long move = node.getMove(i); // Selects the next best move
+                MNKCell cell = boardCells[MoveUtil.getCell(move)];
 
-                // Update tmpBoard and FC before calling alphabeta recursively
-                tmpBoard[cell.getCell().i][cell.getCell().j] = opponent;
-                FC.remove(cell.getCell());
+                // Update tmpBoard, windowIndex and FC before calling alphabeta recursively
+                makeMove(cell, opponent, FC);
 
                 // Create (or get) the child node
                 Node child;
-                if (children != null) {
+                if (children != null && children[i] != null) {
                     child = children[i];
-                    if (child == null) {
-                        EvaluatedCell[] evaluatedCells = complexEvaluateTmpBoard(FC, our);
-                        child = node.addChild(cell, evaluatedCells);
-                    }
+                    stats.reusedChild();
                 } else {
-                    EvaluatedCell[] evaluatedCells = complexEvaluateTmpBoard(FC, our);
-                    child = node.addChild(cell, evaluatedCells); // Instantiate node.getChildren() array
+                    child = node.addChild(move); // Instantiates node.getChildren() array if needed
                     children = node.getChildren();
+                    stats.createdChild();
                 }
 
                 // Calls alphabeta recursively
@@ -390,37 +877,41 @@ public final class CadregaBot implements MNKPlayer {
                 value = Math.min(value, alphabeta);
                 beta = Math.min(value, beta);
 
-                // Restore tmpBoard and FC
-                tmpBoard[cell.getCell().i][cell.getCell().j] = MNKCellState.FREE;
-                FC.add(cell.getCell());
+                // Restore tmpBoard, windowIndex and FC
+                unmakeMove(cell, opponent, FC);
 
                 // alphabeta cutoff
                 if (beta <= alpha) {
+                    stats.cutoff(i);
                     break;
                 }
             }
         }
 
         // Returns the result of the alphabeta visit
+        storeTransposition(value, ply, depth, value <= alphaStart ? TranspositionTable.UPPER
+                : value >= betaStart ? TranspositionTable.LOWER : TranspositionTable.EXACT);
         return value;
     }
 
     /**
      * Starts the alphabeta visit and puts in bestMove the best move it has found.
+     * The moves of the provided node must have already been generated.
      *
      * @param node The root of the tree to visit.
      * @param alpha The alpha value inherited from the parent.
      * @param beta The beta value inherited from the parent.
      * @param depth The depth of the visit.
-     * @param FC The set containing the free cells.
+     * @param FC The free cells.
      */
-    private void alphabetaStart(Node node, int alpha, int beta, int depth, Set<MNKCell> FC) {
-        checkTime();
+    private void alphabetaStart(Node node, int alpha, int beta, int depth, FreeCells FC) {
+        checkLimit();
 
         // Keep track of analyzed nodes
         nodeCounter++;
+        stats.node(0);
 
-        if (node.getSortedCells().length <= 1 || depth == 0) {
+        if ((node.getMoveCount() <= 1 && rootMoves == null) || depth == 0) {
             // We must block the opponent from winning, go to win in one move or alphabetaStart was invoked with a depth of 0
             this.alphabetaStarted = false; // We didn't start the alphabeta algorithm
             bestMove = null;
@@ -432,29 +923,25 @@ public final class CadregaBot implements MNKPlayer {
             // Values needed to start alphabeta
             int value = -Integer.MAX_VALUE;
             Node[] children = node.getChildren();
-            EvaluatedCell[] cells = node.getSortedCells();
 
             int bestMoveValue = value;
 
-            for (int i = 0; i < cells.length; i++) {
-                EvaluatedCell cell = cells[i];
+            for (int i = 0; i < node.getMoveCount(); i++) {
+                long move = node.getMove(i);
+                MNKCell cell = boardCells[MoveUtil.getCell(move)];
 
-                // Update tmpBoard and FC before calling alphabeta
-                tmpBoard[cell.getCell().i][cell.getCell().j] = our;
-                FC.remove(cell.getCell());
+                // Update tmpBoard, windowIndex and FC before calling alphabeta
+                makeMove(cell, our, FC);
 
                 // Create (or get) the child node
                 Node child;
-                if (children != null) {
+                if (children != null && children[i] != null) {
                     child = children[i];
-                    if (child == null) {
-                        EvaluatedCell[] evaluatedCells = complexEvaluateTmpBoard(FC, opponent);
-                        child = node.addChild(cell, evaluatedCells);
-                    }
+                    stats.reusedChild();
                 } else {
-                    EvaluatedCell[] evaluatedCells = complexEvaluateTmpBoard(FC, opponent);
-                    child = node.addChild(cell, evaluatedCells); // Instantiate node.getChildren() array
+                    child = node.addChild(move); // Instantiates node.getChildren() array if needed
                     children = node.getChildren();
+                    stats.createdChild();
                 }
 
                 // Calls alphabeta
@@ -463,18 +950,19 @@ public final class CadregaBot implements MNKPlayer {
                 value = Math.max(value, alphabeta);
                 alpha = Math.max(value, alpha);
 
-                // Restore tmpBoard and FC
-                tmpBoard[cell.getCell().i][cell.getCell().j] = MNKCellState.FREE;
-                FC.add(cell.getCell());
+                // Restore tmpBoard, windowIndex and FC
+                unmakeMove(cell, our, FC);
 
                 // Update bestMove if this move is better than the previous
                 if (value > bestMoveValue) {
                     bestMove = child;
                     bestMoveValue = value;
+                    bestScore = value;
                 }
 
                 // alphabeta cutoff
                 if (beta <= alpha) {
+                    stats.cutoff(i);
                     break;
                 }
             }
@@ -484,12 +972,16 @@ public final class CadregaBot implements MNKPlayer {
     /**
      * Calculates a simple evaluation of the board used to determine how good is that configuration.
      *
-     * @param FC The set containing the free cells.
+     * @param FC The free cells.
      * @return The evaluation of the board.
      */
-    private int simpleEvaluateTmpBoard(Set<MNKCell> FC) {
+    private int simpleEvaluateTmpBoard(FreeCells FC) {
         int sum = 0;
-        for (MNKCell cell : FC) {
+        for (int k = 0; k < FC.size(); k++) {
+            MNKCell cell = boardCells[FC.get(k)];
+            if (windowIndex.isDeadCell(cell.i, cell.j)) {
+                continue; // Dead cells are worth 0 for both players
+            }
             sum += evaluateUtil.simpleEvaluate(cell, our);
             sum -= evaluateUtil.simpleEvaluate(cell, opponent);
         }
@@ -497,48 +989,233 @@ public final class CadregaBot implements MNKPlayer {
     }
 
     /**
-     * Returns an array of {@link EvaluatedCell} sorted by best move (using the heuristic provided by {@link EvaluateUtil#evaluate(MNKCell, MNKCellState)}).
-     * If there is a move that leads to an immediate victory, either of the current player or the opponent,
-     * the returned array has length of 1 and contains only that move.
+     * Returns whether the player whose turn it is at the provided node can win in one move.
+     * This is the first stage of the move generation: if such a move exists, it becomes the only move of the node.
      *
-     * @param FC The set containing the free cells.
+     * @param node The node.
+     * @param FC The free cells.
      * @param player Whose player the turn is.
-     * @return An array of {@link EvaluatedCell} sorted by best move.
+     * @return Whether the player can win in one move.
      */
-    private EvaluatedCell[] complexEvaluateTmpBoard(Set<MNKCell> FC, MNKCellState player) {
-        EvaluatedCell[] cells = new EvaluatedCell[FC.size()]; // The array to return
-        int index = 0; // The index of the next element to insert
+    private boolean hasWinningMove(Node node, FreeCells FC, MNKCellState player) {
+        if (!node.hasMoves() && !node.isWinChecked()) {
+            node.setWinChecked();
+            for (int k = 0; k < FC.size(); k++) {
+                MNKCell cell = boardCells[FC.get(k)];
+                if (evaluateUtil.isWinningCell(cell, player)) {
+                    node.setMoves(new long[]{MoveUtil.pack(OUR_VICTORY, cell.i * N + cell.j)}, true);
+                    break;
+                }
+            }
+        }
+        return node.hasMoves() && node.getMoveCount() == 1 && MoveUtil.getValue(node.getMove(0)) >= OUR_VICTORY;
+    }
 
-        Iterator<MNKCell> it = FC.iterator(); // Iterator over the Set of FC
-        while (it.hasNext()) {
-            MNKCell cell = it.next();
+    /**
+     * Generates the moves of the provided node, if they haven't been generated yet. The moves are generated in stages:
+     * <ol>
+     *     <li>a move which makes the player win (see {@link #hasWinningMove(Node, FreeCells, MNKCellState)});</li>
+     *     <li>a move which blocks an opponent's win;</li>
+     *     <li>every other move, evaluated by the heuristic.</li>
+     * </ol>
+     * The moves of the last stage are sorted only if sort is true, otherwise they are selected incrementally
+     * by {@link Node#getMove(int)}, so the moves after a cutoff are never sorted.
+     *
+     * @param node The node.
+     * @param FC The free cells.
+     * @param player Whose player the turn is.
+     * @param sort Whether the moves have to be sorted immediately.
+     */
+    private void generateMoves(Node node, FreeCells FC, MNKCellState player, boolean sort) {
+        if (hasWinningMove(node, FC, player) || node.hasMoves()) {
+            return;
+        }
+        long[] moves = complexEvaluateTmpBoard(FC, player);
+        if (sort) {
+            SortUtil.radixSort(moves, moves.length, sortBuffer, sortCounts);
+        } else {
+            SortUtil.heapify(moves);
+        }
+        node.setMoves(moves, sort);
+    }
 
-            int eval = evaluateUtil.evaluate(cell, player); // Evaluate our move
-            if (eval == OUR_VICTORY) {
-                return new EvaluatedCell[]{new EvaluatedCell(cell, OUR_VICTORY)};
+    /**
+     * Generates the moves of the root like {@link #generateMoves(Node, FreeCells, MNKCellState, boolean)}, sorting them.
+     * On huge boards the free cells are scanned in parallel (see {@link ParallelRootScan}), with the same result.
+     */
+    private void generateRootMoves() {
+        if (parallelRoot == null || root.hasMoves() || !ParallelRootScan.isWorthIt(freeCells.size())) {
+            generateMoves(root, freeCells, our, true);
+            return;
+        }
+        if (!root.isWinChecked()) {
+            root.setWinChecked();
+            int win = parallelRoot.findWinningCell(freeCells, our);
+            if (win >= 0) {
+                root.setMoves(new long[]{MoveUtil.pack(OUR_VICTORY, win)}, true);
+                return;
             }
-            int evalOpponent = evaluateUtil.evaluate(cell, player == our ? opponent : our); // Evaluate opponent's move
-            if (evalOpponent == OUR_VICTORY) { // Does the opponent win?
-                // The opponent wins with a move, can we win in 1 move?
-                while (it.hasNext()) {
-                    MNKCell otherCell = it.next(); // This consumes the rest of the iterator
-
-                    if (evaluateUtil.isWinningCell(otherCell, player)) {
-                        // Yes, we can win!
-                        return new EvaluatedCell[]{new EvaluatedCell(otherCell, OUR_VICTORY)};
-                    }
-                }
-                // No, we can't win. Block the opponent then
-                return new EvaluatedCell[]{new EvaluatedCell(cell, OPPONENT_VICTORY)};
+        }
+        long[] moves = parallelRoot.evaluate(freeCells, our, opponent);
+        SortUtil.radixSort(moves, moves.length, sortBuffer, sortCounts);
+        root.setMoves(moves, true);
+    }
+
+    /**
+     * Returns an array of moves (see {@link MoveUtil}) evaluated using the heuristic provided by
+     * {@link EvaluateUtil#evaluate(MNKCell, MNKCellState)}. The player must not be able to win in one move.
+     * If the opponent can win in one move, the returned array has length of 1 and contains only the move which blocks him.
+     * Dead cells (see {@link WindowIndex#isDeadCell(int, int)}) are not returned, so the array is empty when the game is a draw.
+     * <p>
+     * The moves are not sorted. They are evaluated into {@link #moveBuffer}, so the only memory
+     * allocated is the returned array, which is kept by the {@link Node} of the position.
+     *
+     * @param FC The free cells.
+     * @param player Whose player the turn is.
+     * @return An array of moves.
+     */
+    long[] complexEvaluateTmpBoard(FreeCells FC, MNKCellState player) {
+        MNKCellState other = player == our ? opponent : our;
+
+        // Does the opponent win?
+        for (int k = 0; k < FC.size(); k++) {
+            MNKCell cell = boardCells[FC.get(k)];
+            if (evaluateUtil.isWinningCell(cell, other)) {
+                // Yes, block him
+                return new long[]{MoveUtil.pack(OPPONENT_VICTORY, cell.i * N + cell.j)};
             }
+        }
+
+        int index = 0; // The index of the next element to insert into moveBuffer
+        for (int k = 0; k < FC.size(); k++) {
+            MNKCell cell = boardCells[FC.get(k)];
+            if (windowIndex.isDeadCell(cell.i, cell.j)) {
+                continue; // Moving here cannot change the outcome of the game
+            }
+
+            int eval = evaluateUtil.evaluate(cell, player); // Evaluate our move
+            int evalOpponent = evaluateUtil.evaluate(cell, other); // Evaluate opponent's move
+
             // The value of the cell is the sum of the heuristic evaluation from our point of view and from the opponent's one.
             // This way we take into consideration cells which doesn't help us, but blocks opponent's possible good alignments.
-            cells[index++] = new EvaluatedCell(cell, eval + evalOpponent);
+            moveBuffer[index++] = MoveUtil.pack(eval + evalOpponent, cell.i * N + cell.j);
+        }
+
+        return Arrays.copyOf(moveBuffer, index);
+    }
+
+    /**
+     * Sets the criterion used to stop the search. It should be set before {@link #initPlayer(int, int, int, boolean, int)},
+     * which calibrates the search only for time limits; if it is set later, it applies from the next selectCell.
+     *
+     * @param searchLimit The search limit.
+     */
+    public void setSearchLimit(SearchLimit searchLimit) {
+        this.searchLimit = searchLimit;
+        if (defaultTimeout >= 0) {
+            this.timeout = timeLimit(defaultTimeout);
+        }
+    }
+
+    /**
+     * Returns the criterion used to stop the search.
+     *
+     * @return The search limit.
+     */
+    public SearchLimit getSearchLimit() {
+        return searchLimit;
+    }
+
+    /**
+     * Replaces the state of the board with the provided marked cells, discarding the tree
+     * calculated in previous rounds. Used by the benchmarks.
+     *
+     * @param MC The marked cells.
+     */
+    void loadPosition(MNKCell[] MC) {
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                board[i][j] = MNKCellState.FREE;
+            }
+        }
+        for (MNKCell cell : MC) {
+            board[cell.i][cell.j] = cell.state;
         }
+        boardMoves = MC.length;
+        copyTmpBoard();
+        windowIndex.reset();
+        freeCells.reset();
+        root = null;
+        bestMove = null;
+    }
 
-        // Sort in O(n)
-        SortUtil.radixSort(cells);
-        return cells;
+    /**
+     * Restricts the moves searched at the root to the provided cells, e.g. to calculate the score of a move which
+     * is not the best one. The restricted moves are searched even if there is only one of them, or if it isn't
+     * the move forced by a win or a threat. Used by the analysis tools.
+     *
+     * @param cells The indexes of the free cells to search, {@code null} to remove the restriction.
+     */
+    void setRootMoves(int[] cells) {
+        this.rootMoves = cells;
+    }
+
+    /**
+     * Replaces the moves of the root with {@link #rootMoves}, keeping the heuristic value of those already generated.
+     * The root is replaced by a new node, since its children would not match the new moves.
+     */
+    private void restrictRootMoves() {
+        long[] moves = new long[rootMoves.length];
+        for (int r = 0; r < rootMoves.length; r++) {
+            moves[r] = MoveUtil.pack(0, rootMoves[r]);
+            for (int i = 0; i < root.getMoveCount(); i++) {
+                if (MoveUtil.getCell(root.getMove(i)) == rootMoves[r]) {
+                    moves[r] = root.getMove(i);
+                    break;
+                }
+            }
+        }
+        SortUtil.heapify(moves);
+        root = new Node(-1, null);
+        root.setMoves(moves, false);
+    }
+
+    /**
+     * Returns the free cells of tmpBoard.
+     *
+     * @return The free cells of tmpBoard.
+     */
+    FreeCells getFreeCells() {
+        return freeCells;
+    }
+
+    /**
+     * Returns the number of nodes visited by the last call to {@link #selectCell(MNKCell[], MNKCell[])}.
+     *
+     * @return The number of nodes visited.
+     */
+    long getNodeCount() {
+        return nodeCounter;
+    }
+
+    /**
+     * Returns the statistics of the last call to {@link #selectCell(MNKCell[], MNKCell[])}. The returned object
+     * is reused by the following calls.
+     *
+     * @return The statistics of the last search.
+     */
+    public SearchStats getSearchStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the value of the move selected by the last call to {@link #selectCell(MNKCell[], MNKCell[])}:
+     * its alphabeta value or, if alphabeta didn't start (e.g. the move was forced), its heuristic value.
+     *
+     * @return The value of the selected move.
+     */
+    int getBestScore() {
+        return bestScore;
     }
 
     /**
@@ -549,6 +1226,7 @@ public final class CadregaBot implements MNKPlayer {
      */
     private MNKCell saveMove(MNKCell move) {
         board[move.i][move.j] = our;
+        boardMoves++;
         root = bestMove;
         return move;
     }
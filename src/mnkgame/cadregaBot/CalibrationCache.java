@@ -0,0 +1,140 @@
+package mnkgame.cadregaBot;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The calibrations of the search speed measured by initPlayer, persisted to the file set by the system property
+ * {@code cadregaBot.calibration}, so that later runs can skip most of the dummy search.
+ * <p>
+ * A calibration is stored for every (M, N, K) configuration, player and hardware fingerprint (the operating system,
+ * the architecture, the number of processors, the JVM and its maximum heap). It contains the result of the short
+ * check search, run every time to verify that the machine still has the same speed, and the result of the full
+ * dummy search, used to calculate the depth of the first move. The file is a {@link Properties} file, replaced
+ * atomically when a calibration is added, and it is shared by all the {@link CadregaBot}s of the JVM.
+ */
+final class CalibrationCache {
+
+    /**
+     * The cache of the file set by the system property {@code cadregaBot.calibration}, {@code null} if it isn't set.
+     */
+    static final CalibrationCache INSTANCE = System.getProperty("cadregaBot.calibration") == null ? null
+            : new CalibrationCache(Paths.get(System.getProperty("cadregaBot.calibration")));
+
+    // The largest ratio between the speed of the check search and the cached one for which the calibration is valid
+    private static final double TOLERANCE = 1.5;
+
+    private static final String FINGERPRINT = Integer.toHexString(String.join("|", System.getProperty("os.name"),
+            System.getProperty("os.arch"), String.valueOf(Runtime.getRuntime().availableProcessors()),
+            System.getProperty("java.vm.name"), System.getProperty("java.vm.version"),
+            String.valueOf(Runtime.getRuntime().maxMemory())).hashCode());
+
+    private final Path file;
+    private Properties calibrations; // Loaded on the first access
+
+    /**
+     * A calibration: the nodes visited by the check search and by the dummy search, and their durations.
+     */
+    static final class Calibration {
+        final long checkNodes, checkMillis, nodes, millis;
+        final boolean alphabetaStarted; // Whether the dummy search started alphabeta (see CadregaBot)
+
+        Calibration(long checkNodes, long checkMillis, long nodes, long millis, boolean alphabetaStarted) {
+            this.checkNodes = checkNodes;
+            this.checkMillis = checkMillis;
+            this.nodes = nodes;
+            this.millis = millis;
+            this.alphabetaStarted = alphabetaStarted;
+        }
+
+        /**
+         * Returns whether the check search just run has the same speed of the cached one.
+         *
+         * @param checkNodes The nodes visited by the check search.
+         * @param checkMillis The duration of the check search.
+         * @return Whether the calibration is valid on this machine.
+         */
+        boolean matches(long checkNodes, long checkMillis) {
+            double cachedSpeed = (double) this.checkNodes / Math.max(1, this.checkMillis);
+            double speed = (double) checkNodes / Math.max(1, checkMillis);
+            return speed <= cachedSpeed * TOLERANCE && speed * TOLERANCE >= cachedSpeed;
+        }
+    }
+
+    private CalibrationCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the calibration of the provided configuration on this machine.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @param first Whether the bot is the first player.
+     * @return The calibration, {@code null} if none has been stored or it is not valid.
+     */
+    synchronized Calibration get(int M, int N, int K, boolean first) {
+        String value = load().getProperty(key(M, N, K, first));
+        if (value == null) {
+            return null;
+        }
+        String[] fields = value.split(" ");
+        try {
+            return new Calibration(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3]), Boolean.parseBoolean(fields[4]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the calibration of the provided configuration on this machine, and writes the file.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @param first Whether the bot is the first player.
+     * @param calibration The calibration.
+     */
+    synchronized void put(int M, int N, int K, boolean first, Calibration calibration) {
+        load().setProperty(key(M, N, K, first), String.format(Locale.ROOT, "%d %d %d %d %b", calibration.checkNodes,
+                calibration.checkMillis, calibration.nodes, calibration.millis, calibration.alphabetaStarted));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                calibrations.store(writer, "CadregaBot calibrations: check nodes, check ms, nodes, ms, alphabeta started");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("CadregaBot: cannot write " + file + ": " + e);
+        }
+    }
+
+    private Properties load() {
+        if (calibrations == null) {
+            calibrations = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                calibrations.load(reader);
+            } catch (NoSuchFileException e) {
+                // No calibration has been stored yet
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("CadregaBot: cannot read " + file + ": " + e);
+            }
+        }
+        return calibrations;
+    }
+
+    private static String key(int M, int N, int K, boolean first) {
+        return M + "x" + N + "x" + K + "." + (first ? "first" : "second") + "." + FINGERPRINT;
+    }
+}
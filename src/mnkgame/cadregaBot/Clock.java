@@ -0,0 +1,35 @@
+package mnkgame.cadregaBot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The source of time of {@link CadregaBot}, used to check the time limit (see {@link SearchLimit}).
+ */
+public interface Clock {
+
+    /**
+     * The wall-clock time, as returned by {@link System#currentTimeMillis()}.
+     */
+    Clock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * The CPU time used by the current thread. Under load it is less noisy than the wall-clock time,
+     * but it doesn't count the time the thread waits for the CPU.
+     */
+    Clock THREAD_CPU = new Clock() {
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        @Override
+        public long millis() {
+            return threadMXBean.getCurrentThreadCpuTime() / 1_000_000L;
+        }
+    };
+
+    /**
+     * Returns the current time in milliseconds. Only the difference between two values is meaningful.
+     *
+     * @return The current time in milliseconds.
+     */
+    long millis();
+}
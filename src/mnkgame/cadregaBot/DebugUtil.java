@@ -2,6 +2,9 @@ package mnkgame.cadregaBot;
 
 import mnkgame.MNKCellState;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Arrays;
 
 /**
@@ -13,9 +16,9 @@ public final class DebugUtil {
      * Utility which prints the current state of the table to the standard output.
      *
      * @param board The board to be printed.
-     * @param cells The cells of the board evaluated by the heuristic.
+     * @param moves The moves evaluated by the heuristic (see {@link MoveUtil}).
      */
-    public static void printTable(MNKCellState[][] board, EvaluatedCell[] cells) {
+    public static void printTable(MNKCellState[][] board, long[] moves) {
         int M = board.length;
         int N = board[0].length;
 
@@ -23,8 +26,8 @@ public final class DebugUtil {
             final int value;
             final MNKCellState state;
 
-            public Printable(EvaluatedCell cell) {
-                this.value = cell.getValue();
+            public Printable(long move) {
+                this.value = MoveUtil.getValue(move);
                 this.state = MNKCellState.FREE;
             }
 
@@ -54,8 +57,9 @@ public final class DebugUtil {
 
         Printable[][] printable = new Printable[M][N];
 
-        for (EvaluatedCell cell : cells) {
-            printable[cell.getCell().i][cell.getCell().j] = new Printable(cell);
+        for (long move : moves) {
+            int cell = MoveUtil.getCell(move);
+            printable[cell / N][cell % N] = new Printable(move);
         }
         for (int i = 0; i < M; i++) {
             for (int j = 0; j < N; j++) {
@@ -99,6 +103,32 @@ public final class DebugUtil {
         System.out.println(lines);
     }
 
+    /**
+     * Returns the amount of bytes allocated by the current thread since its start.
+     *
+     * @return The amount of bytes allocated by the current thread, or -1 if the JVM doesn't support this measurement.
+     */
+    public static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the total number of garbage collections occurred since the start of the JVM.
+     *
+     * @return The total number of garbage collections.
+     */
+    public static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(bean.getCollectionCount(), 0); // getCollectionCount() returns -1 if undefined
+        }
+        return count;
+    }
+
     // Private constructor
     private DebugUtil() {
         throw new UnsupportedOperationException();
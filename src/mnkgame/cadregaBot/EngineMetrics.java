@@ -0,0 +1,175 @@
+package mnkgame.cadregaBot;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of all the {@link CadregaBot}s of the JVM, updated after every move.
+ * <p>
+ * Counters are {@link LongAdder}s and gauges are volatile fields written by the last move, so the updates are lock-free
+ * and happen once per move, outside the search. The metrics are registered as the JMX MBean
+ * {@value #OBJECT_NAME} and, if the system property {@code cadregaBot.metrics.file} is set, they are periodically
+ * written to that file in the Prometheus text format (see {@link PrometheusExporter}) every
+ * {@code cadregaBot.metrics.period} seconds (10 by default).
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+
+    /**
+     * The name of the JMX MBean.
+     */
+    public static final String OBJECT_NAME = "mnkgame.cadregaBot:type=EngineMetrics";
+
+    private static volatile EngineMetrics instance;
+
+    private volatile int currentDepth, firstMoveDepth;
+    private volatile long nodesPerSecond, treeBytes;
+    private final LongAdder movesPlayed = new LongAdder(), timeoutAborts = new LongAdder(),
+            nodeLimitAborts = new LongAdder(), fallbackMoves = new LongAdder();
+    private final LogHistogram latency = new LogHistogram(); // In microseconds
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Returns the metrics of the JVM, registering the MBean and starting the exporter the first time.
+     *
+     * @return The metrics.
+     */
+    public static EngineMetrics get() {
+        EngineMetrics metrics = instance;
+        if (metrics == null) {
+            synchronized (EngineMetrics.class) {
+                metrics = instance;
+                if (metrics == null) {
+                    metrics = new EngineMetrics();
+                    register(metrics);
+                    instance = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Registers the MBean and starts the exporter requested by the system properties.
+     * Failures are reported but don't stop the bot, since the metrics are not needed to play.
+     *
+     * @param metrics The metrics.
+     */
+    private static void register(EngineMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("CadregaBot: cannot register " + OBJECT_NAME + ": " + e);
+        }
+        String file = System.getProperty("cadregaBot.metrics.file");
+        if (file != null) {
+            try {
+                long period = Long.parseLong(System.getProperty("cadregaBot.metrics.period", "10"));
+                new PrometheusExporter(metrics, Paths.get(file)).start(period);
+            } catch (IllegalArgumentException e) {
+                System.err.println("CadregaBot: cannot export the metrics to " + file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Records a move.
+     *
+     * @param stats The statistics of the search of the move.
+     * @param abortReason The message of the exception which aborted the search, {@code null} if it wasn't aborted.
+     * @param fallback Whether the move was selected by the heuristic because the search didn't find a best move.
+     * @param firstMove Whether the move is the first one selected by the bot after initPlayer.
+     * @param latencyNanos The time taken to select the move, in nanoseconds.
+     */
+    void recordMove(SearchStats stats, String abortReason, boolean fallback, boolean firstMove, long latencyNanos) {
+        currentDepth = stats.getDepth();
+        if (firstMove) {
+            firstMoveDepth = stats.getDepth();
+        }
+        nodesPerSecond = (long) stats.getNodesPerSecond();
+        treeBytes = stats.getEstimatedTreeBytes();
+        movesPlayed.increment();
+        if ("TIMEOUT".equals(abortReason)) {
+            timeoutAborts.increment();
+        } else if ("NODE LIMIT".equals(abortReason)) {
+            nodeLimitAborts.increment();
+        }
+        if (fallback) {
+            fallbackMoves.increment();
+        }
+        latency.record(latencyNanos / 1000L);
+    }
+
+    @Override
+    public int getCurrentDepth() {
+        return currentDepth;
+    }
+
+    @Override
+    public int getFirstMoveDepth() {
+        return firstMoveDepth;
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    @Override
+    public long getMovesPlayed() {
+        return movesPlayed.sum();
+    }
+
+    @Override
+    public long getTimeoutAborts() {
+        return timeoutAborts.sum();
+    }
+
+    @Override
+    public long getNodeLimitAborts() {
+        return nodeLimitAborts.sum();
+    }
+
+    @Override
+    public long getFallbackMoves() {
+        return fallbackMoves.sum();
+    }
+
+    @Override
+    public long getTreeBytes() {
+        return treeBytes;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return latency.getPercentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latency.getPercentile(100) / 1000.0;
+    }
+
+    /**
+     * Returns the histogram of the time taken to select a move, in microseconds.
+     *
+     * @return The histogram of the latency.
+     */
+    public LogHistogram getLatency() {
+        return latency;
+    }
+}
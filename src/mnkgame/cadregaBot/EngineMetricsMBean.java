@@ -0,0 +1,91 @@
+package mnkgame.cadregaBot;
+
+/**
+ * The JMX interface of {@link EngineMetrics}.
+ */
+public interface EngineMetricsMBean {
+
+    /**
+     * Returns the depth of the visit of the last move.
+     *
+     * @return The depth of the visit of the last move.
+     */
+    int getCurrentDepth();
+
+    /**
+     * Returns the depth of the visit of the last first move, i.e. the first move selected by a bot after initPlayer.
+     *
+     * @return The depth of the visit of the last first move.
+     */
+    int getFirstMoveDepth();
+
+    /**
+     * Returns the nodes visited per second by the search of the last move.
+     *
+     * @return The nodes visited per second by the last move.
+     */
+    long getNodesPerSecond();
+
+    /**
+     * Returns the number of moves played.
+     *
+     * @return The number of moves played.
+     */
+    long getMovesPlayed();
+
+    /**
+     * Returns the number of searches aborted because the time ran out.
+     *
+     * @return The number of searches aborted by the time limit.
+     */
+    long getTimeoutAborts();
+
+    /**
+     * Returns the number of searches aborted because the node limit was reached.
+     *
+     * @return The number of searches aborted by the node limit.
+     */
+    long getNodeLimitAborts();
+
+    /**
+     * Returns the number of moves selected by the heuristic because the search didn't find a best move.
+     *
+     * @return The number of moves selected by the heuristic.
+     */
+    long getFallbackMoves();
+
+    /**
+     * Returns the estimated heap used by the tree of the last move.
+     *
+     * @return The estimated heap used by the tree, in bytes.
+     */
+    long getTreeBytes();
+
+    /**
+     * Returns the median time taken to select a move.
+     *
+     * @return The median latency in milliseconds.
+     */
+    double getLatencyP50Millis();
+
+    /**
+     * Returns the 90th percentile of the time taken to select a move.
+     *
+     * @return The 90th percentile of the latency in milliseconds.
+     */
+    double getLatencyP90Millis();
+
+    /**
+     * Returns the 99th percentile of the time taken to select a move.
+     *
+     * @return The 99th percentile of the latency in milliseconds.
+     */
+    double getLatencyP99Millis();
+
+    /**
+     * Returns the maximum time taken to select a move.
+     *
+     * @return The maximum latency in milliseconds.
+     */
+    double getLatencyMaxMillis();
+}
@@ -0,0 +1,153 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKPlayer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link MNKPlayer} which plays by means of an {@link EngineServer} listening on a localhost socket, so that
+ * the existing testers can drive a warm engine process. The port is read from the system property
+ * {@code cadregaBot.engine.port} (4242 by default).
+ * <p>
+ * Every player opens its own connection, i.e. its own session of the server, in initPlayer. Since players are never
+ * told when their game ends, the connection is closed when the player becomes unreachable.
+ */
+public final class EnginePlayer implements MNKPlayer {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private Connection connection;
+
+    /**
+     * The connection to the server, closed by {@link #CLEANER}.
+     */
+    private static final class Connection implements Runnable {
+        final Socket socket;
+        final BufferedReader in;
+        final PrintWriter out;
+
+        Connection(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+        }
+
+        @Override
+        public void run() {
+            out.println("quit");
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing to do
+            }
+        }
+    }
+
+    /**
+     * Empty constructor.
+     */
+    public EnginePlayer() {
+    }
+
+    /**
+     * Initialize the (M,N,K) Player
+     *
+     * @param M Board rows
+     * @param N Board columns
+     * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+     * @param first True if it is the first player, False otherwise
+     * @param timeout_in_secs Maximum amount of time (in seconds) for selectCell
+     */
+    @Override
+    public void initPlayer(int M, int N, int K, boolean first, int timeout_in_secs) {
+        try {
+            if (connection == null) {
+                connection = new Connection(Integer.getInteger("cadregaBot.engine.port", 4242));
+                CLEANER.register(this, connection);
+                connection.out.println("mnk");
+                expect("mnkok");
+            }
+            connection.out.println("newgame " + M + " " + N + " " + K + " " + (first ? "first" : "second") + " " + timeout_in_secs);
+            expect("gameok");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Select a position among those listed in the <code>FC</code> array
+     *
+     * @param FC Free Cells: array of free cells
+     * @param MC Marked Cells: array of already marked cells, ordered with respect to the game moves (first move is in the first position, etc)
+     * @return an element of <code>FC</code>
+     */
+    @Override
+    public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC) {
+        StringBuilder position = new StringBuilder("position startpos");
+        if (MC.length > 0) {
+            position.append(" moves");
+            for (MNKCell cell : MC) {
+                position.append(' ').append(cell.i).append(',').append(cell.j);
+            }
+        }
+        connection.out.println(position);
+        connection.out.println("go");
+        try {
+            String bestMove = expect("bestmove ").substring("bestmove ".length());
+            String[] cell = bestMove.split(",");
+            int i = Integer.parseInt(cell[0]), j = Integer.parseInt(cell[1]);
+            for (MNKCell c : FC) {
+                if (c.i == i && c.j == j) {
+                    return c;
+                }
+            }
+            throw new IllegalStateException("The engine selected an illegal move: " + bestMove);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the lines of the server until one starts with the provided prefix, failing on errors.
+     *
+     * @param prefix The prefix.
+     * @return The line.
+     * @throws IOException If the connection fails.
+     */
+    private String expect(String prefix) throws IOException {
+        String line;
+        while (!(line = readLine()).startsWith(prefix)) {
+            if (line.startsWith("info string error")) {
+                throw new IllegalStateException("Engine " + line.substring("info string ".length()));
+            }
+        }
+        return line;
+    }
+
+    private String readLine() throws IOException {
+        String line = connection.in.readLine();
+        if (line == null) {
+            throw new IOException("Connection closed by the engine");
+        }
+        return line;
+    }
+
+    /**
+     * Returns the player name
+     *
+     * @return string
+     */
+    @Override
+    public String playerName() {
+        return "EnginePlayer";
+    }
+}
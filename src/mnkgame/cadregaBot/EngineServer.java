@@ -0,0 +1,291 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKBoard;
+import mnkgame.MNKCell;
+import mnkgame.MNKGameState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link CadregaBot} as a long-lived process, driven by a line-based text protocol modeled on UCI, so that the
+ * JIT stays warm across games. The protocol is spoken over the standard input and output or, with {@code -p <port>},
+ * over connections to a localhost socket: every connection is an independent session, so a single process serves
+ * many concurrent games. {@link EnginePlayer} implements {@link mnkgame.MNKPlayer} over this protocol.
+ * <p>
+ * Commands (cells are written as {@code i,j}):
+ * <ul>
+ *     <li>{@code mnk}: replies {@code id name <name>} and {@code mnkok};</li>
+ *     <li>{@code isready}: replies {@code readyok}, also during a search;</li>
+ *     <li>{@code newgame <M> <N> <K> first|second <timeout>}: starts a game, as initPlayer with the timeout in seconds,
+ *     and replies {@code gameok};</li>
+ *     <li>{@code position startpos [moves <cell> ...]}: sets the marked cells of the game, in game order;</li>
+ *     <li>{@code go [time <ms>] [nodes <nodes>] [depth <depth>]}: searches the position with the provided limit
+ *     (the timeout of the game by default), sending {@code info} lines every half a second and at the end,
+ *     followed by {@code bestmove <cell>};</li>
+ *     <li>{@code stop}: stops the search, which replies {@code bestmove} with the best move found so far;</li>
+ *     <li>{@code quit}: closes the session.</li>
+ * </ul>
+ * Errors are reported as {@code info string error: <message>}.
+ * <p>
+ * Usage: {@code EngineServer [-p <port>]}
+ */
+public final class EngineServer {
+
+    private static final long INFO_PERIOD_MILLIS = 500;
+
+    // Sends the info lines of the running searches of all the sessions
+    private static final ScheduledExecutorService INFO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EngineServer info");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("-p")) {
+            int port = Integer.parseInt(args[1]);
+            try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+                System.err.println("EngineServer listening on " + server.getLocalSocketAddress());
+                while (true) {
+                    Socket socket = server.accept();
+                    Thread thread = new Thread(() -> {
+                        try (Socket s = socket) {
+                            new Session(s.getInputStream(), s.getOutputStream()).run();
+                        } catch (IOException e) {
+                            System.err.println("EngineServer: session closed: " + e);
+                        }
+                    }, "EngineServer session " + socket.getRemoteSocketAddress());
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        } else if (args.length == 0) {
+            new Session(System.in, System.out).run();
+        } else {
+            System.err.println("Usage: EngineServer [-p <port>]");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * A session of the protocol, with its own {@link CadregaBot}. Commands are read by the thread which runs
+     * the session, while the searches run on another thread, so that they can be stopped.
+     */
+    private static final class Session {
+        private final BufferedReader in;
+        private final PrintWriter out;
+        private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "EngineServer search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private CadregaBot bot;
+        private SearchLimit defaultLimit;
+        private MNKBoard board;
+        private boolean first; // Whether the bot is the first player
+        private Future<?> search; // The last search, null if none has been started
+
+        Session(InputStream in, OutputStream out) {
+            this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.out = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), true);
+        }
+
+        void run() throws IOException {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] tokens = line.trim().split("\\s+");
+                    try {
+                        if (!execute(tokens)) {
+                            break;
+                        }
+                    } catch (RuntimeException e) {
+                        send("info string error: " + e.getMessage());
+                    }
+                }
+            } finally {
+                if (bot != null) {
+                    bot.stop();
+                }
+                searcher.shutdown();
+            }
+        }
+
+        /**
+         * Executes a command.
+         *
+         * @param tokens The tokens of the command.
+         * @return False if the session must be closed.
+         */
+        private boolean execute(String[] tokens) {
+            switch (tokens[0]) {
+                case "":
+                    break;
+                case "mnk":
+                    send("id name " + new CadregaBot().playerName());
+                    send("mnkok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "newgame":
+                    waitSearch();
+                    newGame(tokens);
+                    send("gameok");
+                    break;
+                case "position":
+                    waitSearch();
+                    position(tokens);
+                    break;
+                case "go":
+                    waitSearch();
+                    go(tokens);
+                    break;
+                case "stop":
+                    if (search != null && !search.isDone()) {
+                        bot.stop();
+                    }
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    throw new IllegalArgumentException("unknown command " + tokens[0]);
+            }
+            return true;
+        }
+
+        private void newGame(String[] tokens) {
+            if (tokens.length != 6 || !(tokens[4].equals("first") || tokens[4].equals("second"))) {
+                throw new IllegalArgumentException("expected newgame <M> <N> <K> first|second <timeout>");
+            }
+            int M = Integer.parseInt(tokens[1]), N = Integer.parseInt(tokens[2]), K = Integer.parseInt(tokens[3]);
+            if (bot == null) {
+                bot = new CadregaBot();
+                defaultLimit = bot.getSearchLimit();
+            }
+            bot.setSearchLimit(defaultLimit);
+            bot.initPlayer(M, N, K, tokens[4].equals("first"), Integer.parseInt(tokens[5]));
+            board = new MNKBoard(M, N, K);
+            first = tokens[4].equals("first");
+        }
+
+        private void position(String[] tokens) {
+            if (board == null) {
+                throw new IllegalStateException("no game started");
+            }
+            if (tokens.length < 2 || !tokens[1].equals("startpos") || (tokens.length > 2 && !tokens[2].equals("moves"))) {
+                throw new IllegalArgumentException("expected position startpos [moves <cell> ...]");
+            }
+            MNKBoard newBoard = new MNKBoard(board.M, board.N, board.K);
+            for (int t = 3; t < tokens.length; t++) {
+                String[] cell = tokens[t].split(",");
+                if (cell.length != 2) {
+                    throw new IllegalArgumentException("illegal cell " + tokens[t]);
+                }
+                newBoard.markCell(Integer.parseInt(cell[0]), Integer.parseInt(cell[1]));
+            }
+            board = newBoard;
+        }
+
+        private void go(String[] tokens) {
+            if (board == null) {
+                throw new IllegalStateException("no game started");
+            }
+            if (board.gameState() != MNKGameState.OPEN) {
+                throw new IllegalStateException("the game has ended");
+            }
+            if ((board.currentPlayer() == 0) != first) {
+                throw new IllegalStateException("it is not the turn of the " + (first ? "first" : "second") + " player");
+            }
+            SearchLimit limit = defaultLimit;
+            for (int t = 1; t + 1 < tokens.length; t += 2) {
+                switch (tokens[t]) {
+                    case "time":
+                        limit = SearchLimit.time(Long.parseLong(tokens[t + 1]));
+                        break;
+                    case "nodes":
+                        limit = SearchLimit.nodes(Long.parseLong(tokens[t + 1]));
+                        break;
+                    case "depth":
+                        limit = SearchLimit.depth(Integer.parseInt(tokens[t + 1]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown go parameter " + tokens[t]);
+                }
+            }
+            bot.setSearchLimit(limit);
+            // A stop read after the end of the previous search (e.g. while its bestmove was being sent) targets
+            // no search: the commands are read by this thread only, so no stop can arrive until the submit
+            bot.cancelStop();
+
+            MNKCell[] FC = board.getFreeCells(), MC = board.getMarkedCells();
+            CadregaBot searching = bot;
+            search = searcher.submit(() -> {
+                ScheduledFuture<?> info = INFO.scheduleAtFixedRate(() -> sendInfo(searching.getSearchStats(), null),
+                        INFO_PERIOD_MILLIS, INFO_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                MNKCell move;
+                try {
+                    move = searching.selectCell(FC, MC);
+                } finally {
+                    info.cancel(false);
+                }
+                sendInfo(searching.getSearchStats(), searching.getBestScore());
+                send("bestmove " + move.i + "," + move.j);
+            });
+        }
+
+        // Waits for the end of the running search, since the other commands can't change the game during a search
+        private void waitSearch() {
+            if (search != null) {
+                try {
+                    search.get();
+                } catch (Exception e) {
+                    send("info string error: " + e);
+                }
+                search = null;
+            }
+        }
+
+        /**
+         * Sends an info line. While the search runs, the statistics are read without synchronization,
+         * so they are only approximate.
+         *
+         * @param stats The statistics of the search.
+         * @param score The score of the selected move, or {@code null} if the search is running.
+         */
+        private void sendInfo(SearchStats stats, Integer score) {
+            long nanos = score != null ? stats.getElapsedNanos() : 0;
+            send(String.format(Locale.ROOT, "info depth %d seldepth %d nodes %d%s%s", stats.getDepth(), stats.getDepthReached(),
+                    stats.getNodes(), nanos > 0 ? String.format(Locale.ROOT, " time %d nps %.0f", nanos / 1_000_000L, stats.getNodesPerSecond()) : "",
+                    score != null ? " score " + score : ""));
+        }
+
+        private void send(String line) {
+            synchronized (out) {
+                out.println(line);
+            }
+        }
+    }
+
+    // Private constructor
+    private EngineServer() {
+        throw new UnsupportedOperationException();
+    }
+}
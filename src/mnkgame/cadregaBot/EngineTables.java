@@ -0,0 +1,163 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The immutable tables of an (M, N, K) configuration, shared by all the games of that configuration in the JVM:
+ * the geometry of the windows used by {@link WindowIndex}, the {@link MNKCell}s of the free cells and the Zobrist keys
+ * used by the {@link TranspositionTable}.
+ * <p>
+ * The state of a game (boards, index, tree) is kept by every {@link CadregaBot}, while these tables are built once per
+ * configuration, so that many concurrent games don't keep copies of them. On a 70x70 board with K = 10 the tables
+ * of the windows take about 1 MB.
+ */
+public final class EngineTables {
+
+    private static final Map<Long, EngineTables> TABLES = new ConcurrentHashMap<>();
+
+    final int M, N, K;
+
+    // Windows are identified by an index. A window is made of the K cells starting from windowStart[w]
+    // and proceeding by windowStep[w] (cells are identified by i * N + j)
+    final int windowCount;
+    final int[] windowStart, windowStep;
+    final int[][] cellWindows; // The windows passing through every cell
+
+    final MNKCell[] boardCells; // The free MNKCells of the board, indexed by i * N + j (see MoveUtil)
+
+    // The Zobrist keys of the cells of P1 (at 2 * (i * N + j)) and of P2 (at 2 * (i * N + j) + 1), generated from
+    // (M, N, K) so that they are the same in every run, and the key of the positions evaluated by P2
+    final long[] zobrist;
+    final long perspectiveP2;
+
+    private EngineTables(int M, int N, int K) {
+        this.M = M;
+        this.N = N;
+        this.K = K;
+
+        // Count the windows (and the windows passing through every cell)
+        int[] perCell = new int[M * N];
+        int count = 0;
+        for (int[] direction : directions()) {
+            for (int i = 0; i < M; i++) {
+                for (int j = 0; j < N; j++) {
+                    if (fits(i, j, direction)) {
+                        for (int k = 0; k < K; k++) {
+                            perCell[(i + k * direction[0]) * N + j + k * direction[1]]++;
+                        }
+                        count++;
+                    }
+                }
+            }
+        }
+
+        this.windowCount = count;
+        this.windowStart = new int[count];
+        this.windowStep = new int[count];
+        this.cellWindows = new int[M * N][];
+        for (int c = 0; c < perCell.length; c++) {
+            cellWindows[c] = new int[perCell[c]];
+            perCell[c] = 0; // Reused as insertion index
+        }
+
+        // Fill the tables
+        int w = 0;
+        for (int[] direction : directions()) {
+            for (int i = 0; i < M; i++) {
+                for (int j = 0; j < N; j++) {
+                    if (fits(i, j, direction)) {
+                        windowStart[w] = i * N + j;
+                        windowStep[w] = direction[0] * N + direction[1];
+                        for (int k = 0; k < K; k++) {
+                            int c = (i + k * direction[0]) * N + j + k * direction[1];
+                            cellWindows[c][perCell[c]++] = w;
+                        }
+                        w++;
+                    }
+                }
+            }
+        }
+
+        this.boardCells = new MNKCell[M * N];
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                boardCells[i * N + j] = new MNKCell(i, j, MNKCellState.FREE);
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(((long) M << 42) ^ ((long) N << 21) ^ K);
+        this.zobrist = new long[2 * M * N];
+        for (int c = 0; c < zobrist.length; c++) {
+            zobrist[c] = random.nextLong();
+        }
+        this.perspectiveP2 = random.nextLong();
+    }
+
+    /**
+     * Returns the Zobrist key of a cell marked by a player.
+     *
+     * @param cell The index of the cell (i * N + j).
+     * @param player The player, P1 or P2.
+     * @return The key.
+     */
+    long zobrist(int cell, MNKCellState player) {
+        return zobrist[2 * cell + (player == MNKCellState.P1 ? 0 : 1)];
+    }
+
+    /**
+     * Returns the Zobrist hash of a board, i.e. the XOR of the keys of its marked cells.
+     *
+     * @param board The board.
+     * @return The hash.
+     */
+    long hash(MNKCellState[][] board) {
+        long hash = 0;
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (board[i][j] != MNKCellState.FREE) {
+                    hash ^= zobrist(i * N + j, board[i][j]);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the tables of the provided configuration, building them the first time.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @return The tables.
+     */
+    public static EngineTables of(int M, int N, int K) {
+        return TABLES.computeIfAbsent(((long) M << 42) | ((long) N << 21) | K, key -> new EngineTables(M, N, K));
+    }
+
+    /**
+     * Returns whether a window starting from {@code (i, j)} in the provided direction fits into the board.
+     *
+     * @param i The row of the first cell of the window.
+     * @param j The column of the first cell of the window.
+     * @param direction The direction of the window.
+     * @return Whether the window fits into the board.
+     */
+    private boolean fits(int i, int j, int[] direction) {
+        int lastI = i + (K - 1) * direction[0], lastJ = j + (K - 1) * direction[1];
+        return lastI >= 0 && lastI < M && lastJ >= 0 && lastJ < N;
+    }
+
+    /**
+     * Returns the directions of the windows: horizontal, vertical, main diagonal (\) and inverted diagonal (/).
+     *
+     * @return The directions of the windows.
+     */
+    private static int[][] directions() {
+        return new int[][]{{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    }
+}
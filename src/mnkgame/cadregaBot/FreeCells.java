@@ -0,0 +1,91 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCellState;
+
+/**
+ * The set of the free cells of tmpBoard.
+ * <p>
+ * Cells are identified by their index {@code i * N + j} and are stored into a dense array, together with the position
+ * of every cell into that array. This way cells can be removed and restored in O(1) without allocating memory.
+ */
+public final class FreeCells {
+
+    private final int M, N;
+    private final MNKCellState[][] tmpBoard;
+
+    private final int[] cells; // The free cells are the first size elements, the removed ones follow
+    private final int[] positions; // The position of every cell into cells
+    private int size;
+
+    /**
+     * Creates a new {@code FreeCells}.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param tmpBoard The tmpBoard.
+     */
+    public FreeCells(int M, int N, MNKCellState[][] tmpBoard) {
+        this.M = M;
+        this.N = N;
+        this.tmpBoard = tmpBoard;
+        this.cells = new int[M * N];
+        this.positions = new int[M * N];
+    }
+
+    /**
+     * Rebuilds the set from the current content of tmpBoard. Cells are stored row by row.
+     */
+    public void reset() {
+        size = 0;
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (tmpBoard[i][j] == MNKCellState.FREE) {
+                    positions[i * N + j] = size;
+                    cells[size++] = i * N + j;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of free cells.
+     *
+     * @return The number of free cells.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the free cell at the provided position, which must be less than {@link #size()}.
+     *
+     * @param position The position.
+     * @return The index of the cell.
+     */
+    public int get(int position) {
+        return cells[position];
+    }
+
+    /**
+     * Removes the provided cell, which must be free, swapping it with the last free cell.
+     *
+     * @param cell The index of the cell.
+     */
+    public void remove(int cell) {
+        int position = positions[cell], last = cells[--size];
+        cells[position] = last;
+        positions[last] = position;
+        cells[size] = cell;
+        positions[cell] = size;
+    }
+
+    /**
+     * Restores the provided cell. Cells must be restored in the reverse order of their removal.
+     *
+     * @param cell The index of the cell, which must be the last removed one.
+     */
+    public void restore(int cell) {
+        // Since the removed cells are restored in reverse order, the cell is still right after the free ones
+        size++;
+    }
+}
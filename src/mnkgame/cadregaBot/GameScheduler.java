@@ -0,0 +1,150 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Plays many concurrent games in a single JVM, multiplexing their searches over a bounded pool of workers.
+ * <p>
+ * Every game has its own {@link CadregaBot}, which holds only the state of the game, while the tables of its (M, N, K)
+ * configuration are shared (see {@link EngineTables}). The tree of every game is bounded by a memory budget (see
+ * {@link CadregaBot#setTreeBudget(long)}), so the memory used by thousands of games is predictable.
+ * <p>
+ * Searches wait in a FIFO queue until a worker is free, and the time limit of a search starts only when a worker
+ * starts it. With more games than workers, games should therefore be limited by nodes or depth
+ * (see {@link SearchLimit}), unless the callers can tolerate waiting.
+ */
+public final class GameScheduler implements AutoCloseable {
+
+    private final ExecutorService workers;
+
+    /**
+     * A game played by the scheduler.
+     */
+    public static final class Game {
+        private final CadregaBot bot = new CadregaBot();
+        private final AtomicBoolean busy = new AtomicBoolean(); // Whether a call of the game is queued or running
+
+        private Game() {
+        }
+
+        /**
+         * Returns the bot of the game, e.g. to read its {@link SearchStats}. It must not be used while a call
+         * of the game is queued or running.
+         *
+         * @return The bot.
+         */
+        public CadregaBot getBot() {
+            return bot;
+        }
+    }
+
+    /**
+     * Creates a new {@code GameScheduler}.
+     *
+     * @param workers The number of workers, usually the number of processors.
+     */
+    public GameScheduler(int workers) {
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "GameScheduler worker " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a game, initializing its bot (as initPlayer) on a worker.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @param first Whether the bot is the first player.
+     * @param timeout The timeout of the game in seconds.
+     * @param limit The search limit of the game.
+     * @param treeBudget The tree budget of the game, in bytes.
+     * @return The game, completed when it has been initialized.
+     * @throws RejectedExecutionException If the scheduler has been closed.
+     */
+    public CompletableFuture<Game> newGame(int M, int N, int K, boolean first, int timeout, SearchLimit limit, long treeBudget)
+            throws RejectedExecutionException {
+        Game game = new Game();
+        game.bot.setSearchLimit(limit);
+        game.bot.setTreeBudget(treeBudget);
+        return submit(game, () -> {
+            game.bot.initPlayer(M, N, K, first, timeout);
+            return game;
+        });
+    }
+
+    /**
+     * Selects the move of the bot of a game on a worker (see {@link CadregaBot#selectCell(MNKCell[], MNKCell[])}).
+     *
+     * @param game The game.
+     * @param FC The free cells.
+     * @param MC The marked cells.
+     * @return The selected move, completed when the search ends.
+     * @throws IllegalStateException If a call of the game is already queued or running.
+     * @throws RejectedExecutionException If the scheduler has been closed.
+     */
+    public CompletableFuture<MNKCell> selectCell(Game game, MNKCell[] FC, MNKCell[] MC)
+            throws IllegalStateException, RejectedExecutionException {
+        return submit(game, () -> game.bot.selectCell(FC, MC));
+    }
+
+    /**
+     * Runs a call of a game on a worker, making sure that the calls of a game never overlap.
+     *
+     * @param game The game.
+     * @param call The call.
+     * @param <T> The type of the result.
+     * @return The result of the call.
+     * @throws IllegalStateException If a call of the game is already queued or running.
+     * @throws RejectedExecutionException If the scheduler has been closed.
+     */
+    private <T> CompletableFuture<T> submit(Game game, Supplier<T> call) throws IllegalStateException, RejectedExecutionException {
+        if (!game.busy.compareAndSet(false, true)) {
+            throw new IllegalStateException("A call of the game is already queued or running");
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.get();
+                } finally {
+                    game.busy.set(false);
+                }
+            }, workers);
+        } catch (RejectedExecutionException e) { // The scheduler has been closed
+            game.busy.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting games and waits for the queued calls to end. If interrupted while waiting, it returns
+     * with the interrupt status of the thread set.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        boolean interrupted = false;
+        while (!workers.isTerminated()) {
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package mnkgame.cadregaBot;
+
+/**
+ * Utility class to handle moves packed into a {@code long}.
+ * <p>
+ * A move is made of the heuristic value of the move, stored in the upper 32 bits, and of the index of its cell
+ * ({@code i * N + j}), stored in the lower 32 bits. If placing a symbol in that cell leads to an immediate victory,
+ * the value of the move is either:
+ * <ul>
+ *     <li>{@link CadregaBot#OUR_VICTORY OUR_VICTORY} when the winner is the current player</li>
+ *     <li>{@link CadregaBot#OPPONENT_VICTORY OPPONENT_VICTORY} when the winner is the opponent</li>
+ * </ul>
+ */
+public final class MoveUtil {
+
+    /**
+     * Packs the provided value and cell index into a move.
+     *
+     * @param value The heuristic value of the move. Must be positive.
+     * @param cell The index of the cell of the move.
+     * @return The packed move.
+     */
+    public static long pack(int value, int cell) {
+        return ((long) value << 32) | cell;
+    }
+
+    /**
+     * Returns the heuristic value of the move.
+     *
+     * @param move The packed move.
+     * @return The heuristic value of the move.
+     */
+    public static int getValue(long move) {
+        return (int) (move >>> 32);
+    }
+
+    /**
+     * Returns the index of the cell of the move.
+     *
+     * @param move The packed move.
+     * @return The index of the cell of the move.
+     */
+    public static int getCell(long move) {
+        return (int) move;
+    }
+
+    // Private constructor
+    private MoveUtil() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -1,38 +1,41 @@
 package mnkgame.cadregaBot;
 
-import mnkgame.MNKCell;
-
 /**
  * A node of the alphabeta tree.
+ * <p>
+ * The moves of a node are generated lazily by {@link CadregaBot} and are extracted in order of (heuristic) probability
+ * of being a good move only when alphabeta asks for them, so the moves after a cutoff are never sorted.
  */
 public final class Node {
-    private final EvaluatedCell cell; // Cell of this node
+    private final long move; // Move of this node (see MoveUtil), -1 for the root
     private Node parent;
-    private final EvaluatedCell[] sortedCells; // Possible next moves sorted by (heuristic) probability of being a good move
+    // Possible next moves, null if they haven't been generated yet. The first sortedCount moves are sorted
+    // by (heuristic) probability of being a good move, the other ones are a heap (see SortUtil#selectNext)
+    private long[] moves;
+    private int sortedCount;
+    private boolean winChecked; // Whether the presence of a winning move has already been checked
     // The children of a node are not created at its creation, but they are added dynamically when alphabeta needs them
     private Node[] children; // This array contains the children already created
     private int childToAdd; // Index of the next child to add
 
     /**
-     * Creates a new {@code Node}.
+     * Creates a new {@code Node}. Its moves have to be set using {@link #setMoves(long[], boolean)}.
      *
-     * @param cell The {@link EvaluatedCell} of this node.
+     * @param move The move of this node.
      * @param parent The parent {@code Node}.
-     * @param sortedCells The sorted array of {@link EvaluatedCell}.
      */
-    public Node(EvaluatedCell cell, Node parent, EvaluatedCell[] sortedCells) {
-        this.cell = cell;
+    public Node(long move, Node parent) {
+        this.move = move;
         this.parent = parent;
-        this.sortedCells = sortedCells;
     }
 
     /**
-     * Returns the {@link EvaluatedCell} of this node.
+     * Returns the move of this node.
      *
-     * @return The {@link EvaluatedCell} of this node.
+     * @return The move of this node.
      */
-    public EvaluatedCell getCell() {
-        return cell;
+    public long getMove() {
+        return move;
     }
 
     /**
@@ -54,12 +57,71 @@ public final class Node {
     }
 
     /**
-     * Returns the sorted array of {@link EvaluatedCell}s of the node.
+     * Returns whether the moves of this node have already been generated.
+     *
+     * @return Whether the moves of this node have already been generated.
+     */
+    public boolean hasMoves() {
+        return moves != null;
+    }
+
+    /**
+     * Sets the moves of this node.
      *
-     * @return The sorted array of {@link EvaluatedCell}s of the node.
+     * @param moves The moves. If they are not sorted, they must be a heap built by {@link SortUtil#heapify(long[])}.
+     * @param sorted Whether the moves are already sorted.
      */
-    public EvaluatedCell[] getSortedCells() {
-        return sortedCells;
+    public void setMoves(long[] moves, boolean sorted) {
+        this.moves = moves;
+        this.sortedCount = sorted ? moves.length : 0;
+    }
+
+    /**
+     * Returns whether the presence of a winning move has already been checked.
+     *
+     * @return Whether the presence of a winning move has already been checked.
+     */
+    public boolean isWinChecked() {
+        return winChecked;
+    }
+
+    /**
+     * Marks the presence of a winning move as checked.
+     */
+    public void setWinChecked() {
+        this.winChecked = true;
+    }
+
+    /**
+     * Returns the number of moves of the node.
+     *
+     * @return The number of moves of the node.
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Returns the array of moves of the node. Only the moves already selected by {@link #getMove(int)} are sorted.
+     *
+     * @return The array of moves of the node.
+     */
+    public long[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the ith best move of the node. Moves must be requested in order, since the ith
+     * move is selected only when all the previous ones have already been selected.
+     *
+     * @param i The index of the move.
+     * @return The ith best move of the node.
+     */
+    public long getMove(int i) {
+        while (sortedCount <= i) {
+            SortUtil.selectNext(moves, sortedCount++);
+        }
+        return moves[i];
     }
 
     /**
@@ -72,20 +134,19 @@ public final class Node {
     }
 
     /**
-     * Adds a child to this node. To create a node it is necessary to provide its sorted array of {@link EvaluatedCell}s.
+     * Adds a child to this node. The moves of the child are not generated.
      *
-     * @param child The cell of the child to add.
-     * @param evaluatedCellsOfChild The sorted array of {@link EvaluatedCell}s of the child.
+     * @param child The move of the child to add.
      * @return The newly created child.
      */
-    public Node addChild(EvaluatedCell child, EvaluatedCell[] evaluatedCellsOfChild) {
-        if (childToAdd < 0 || childToAdd > sortedCells.length - 1) {
+    public Node addChild(long child) {
+        if (childToAdd < 0 || childToAdd > moves.length - 1) {
             throw new RuntimeException("Invalid childToAdd value");
         }
         if (children == null) {
-            children = new Node[sortedCells.length];
+            children = new Node[moves.length];
         }
-        Node newChild = new Node(child, this, evaluatedCellsOfChild);
+        Node newChild = new Node(child, this);
         children[childToAdd] = newChild;
         childToAdd++;
         return newChild;
@@ -94,10 +155,10 @@ public final class Node {
     /**
      * Searches a child with the provided cell into the children's array of this node.
      *
-     * @param move The cell to search for.
+     * @param cell The index of the cell to search for.
      * @return The child node if it exists, {@code null} otherwise.
      */
-    public Node selectChildByMove(MNKCell move) {
+    public Node selectChildByMove(int cell) {
         if (children == null) {
             return null;
         }
@@ -105,8 +166,7 @@ public final class Node {
             if (n == null) {
                 break;
             }
-            MNKCell cell = n.getCell().getCell();
-            if (cell.i == move.i && cell.j == move.j) {
+            if (MoveUtil.getCell(n.getMove()) == cell) {
                 return n;
             }
         }
@@ -116,19 +176,12 @@ public final class Node {
     /**
      * Adds a leaf as a child of this node.
      *
-     * @param child The cell of the leaf to add.
+     * @param child The move of the leaf to add.
      * @return the newly created leaf.
      */
-    public Node addLeaf(EvaluatedCell child) {
-        if (childToAdd < 0 || childToAdd > sortedCells.length - 1) {
-            throw new RuntimeException("Invalid childToAdd value");
-        }
-        if (children == null) {
-            children = new Node[sortedCells.length];
-        }
-        Node newChild = new Node(child, this, new EvaluatedCell[0]);
-        children[childToAdd] = newChild;
-        childToAdd++;
+    public Node addLeaf(long child) {
+        Node newChild = addChild(child);
+        newChild.setMoves(new long[0], true);
         return newChild;
     }
 }
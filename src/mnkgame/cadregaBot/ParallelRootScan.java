@@ -0,0 +1,151 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans the free cells of the root in parallel on the common {@link ForkJoinPool}, for huge boards where
+ * the evaluation of the root takes a large share of the time of a move.
+ * <p>
+ * The free cells are split into contiguous chunks, one task per chunk. The tasks only read tmpBoard, the
+ * {@link WindowIndex} and the {@link FreeCells}, which are not modified until the scan returns, so they see the same
+ * snapshot of the board. The results of the chunks are merged in the order of the free cells, so they are the same
+ * as the ones of the sequential scan in {@link CadregaBot}, whatever the number of threads.
+ */
+final class ParallelRootScan {
+
+    private static final int MIN_CHUNK = 256; // The minimum number of free cells of a task
+
+    private final int N;
+    private final EvaluateUtil evaluateUtil;
+    private final WindowIndex windowIndex;
+    private final MNKCell[] boardCells;
+
+    /**
+     * Creates a new {@code ParallelRootScan}.
+     *
+     * @param N The N value of (M, N, K).
+     * @param evaluateUtil The heuristic, which reads tmpBoard.
+     * @param windowIndex The live windows of tmpBoard.
+     * @param boardCells The MNKCells of the board, indexed by i * N + j.
+     */
+    ParallelRootScan(int N, EvaluateUtil evaluateUtil, WindowIndex windowIndex, MNKCell[] boardCells) {
+        this.N = N;
+        this.evaluateUtil = evaluateUtil;
+        this.windowIndex = windowIndex;
+        this.boardCells = boardCells;
+    }
+
+    /**
+     * Returns whether a scan of the provided number of free cells is worth splitting.
+     *
+     * @param freeCells The number of free cells.
+     * @return Whether the scan should run in parallel.
+     */
+    static boolean isWorthIt(int freeCells) {
+        return ForkJoinPool.getCommonPoolParallelism() > 1 && freeCells >= 2 * MIN_CHUNK;
+    }
+
+    /**
+     * Returns the first free cell, in the order of FC, in which the player wins. The tasks which only have
+     * cells after a winning cell already found stop early.
+     *
+     * @param FC The free cells.
+     * @param player The player.
+     * @return The index of the winning cell (i * N + j), -1 if the player can't win in one move.
+     */
+    int findWinningCell(FreeCells FC, MNKCellState player) {
+        int size = FC.size();
+        AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE); // The first position of FC with a winning cell
+        runChunks(size, (chunk, from, to) -> {
+            for (int k = from; k < to && k < found.get(); k++) {
+                if (evaluateUtil.isWinningCell(boardCells[FC.get(k)], player)) {
+                    found.accumulateAndGet(k, Math::min);
+                    return;
+                }
+            }
+        });
+        return found.get() == Integer.MAX_VALUE ? -1 : FC.get(found.get());
+    }
+
+    /**
+     * Returns the moves of the player evaluated by the heuristic, like
+     * {@link CadregaBot#complexEvaluateTmpBoard(FreeCells, MNKCellState)}: only the move which blocks the opponent
+     * if the opponent can win in one move, otherwise every cell which is not dead. The moves are not sorted.
+     *
+     * @param FC The free cells.
+     * @param player Whose player the turn is.
+     * @param other The opponent.
+     * @return An array of moves.
+     */
+    long[] evaluate(FreeCells FC, MNKCellState player, MNKCellState other) {
+        int block = findWinningCell(FC, other);
+        if (block >= 0) {
+            return new long[]{MoveUtil.pack(CadregaBot.OPPONENT_VICTORY, block)};
+        }
+
+        int size = FC.size();
+        long[][] chunkMoves = new long[chunks(size)][];
+        runChunks(size, (chunk, from, to) -> {
+            long[] moves = new long[to - from];
+            int index = 0;
+            for (int k = from; k < to; k++) {
+                MNKCell cell = boardCells[FC.get(k)];
+                if (windowIndex.isDeadCell(cell.i, cell.j)) {
+                    continue;
+                }
+                int eval = evaluateUtil.evaluate(cell, player) + evaluateUtil.evaluate(cell, other);
+                moves[index++] = MoveUtil.pack(eval, cell.i * N + cell.j);
+            }
+            chunkMoves[chunk] = Arrays.copyOf(moves, index);
+        });
+
+        // Merge the chunks in the order of FC
+        int total = 0;
+        for (long[] moves : chunkMoves) {
+            total += moves.length;
+        }
+        long[] moves = new long[total];
+        int index = 0;
+        for (long[] chunk : chunkMoves) {
+            System.arraycopy(chunk, 0, moves, index, chunk.length);
+            index += chunk.length;
+        }
+        return moves;
+    }
+
+    /**
+     * The scan of a chunk of the free cells.
+     */
+    @FunctionalInterface
+    private interface ChunkScan {
+        void scan(int chunk, int from, int to);
+    }
+
+    private static int chunks(int size) {
+        return Math.max(1, Math.min(size / MIN_CHUNK, 4 * ForkJoinPool.getCommonPoolParallelism()));
+    }
+
+    /**
+     * Splits the positions from 0 to size into chunks and scans them in parallel, returning when all have been scanned.
+     *
+     * @param size The number of positions.
+     * @param scan The scan of a chunk.
+     */
+    private static void runChunks(int size, ChunkScan scan) {
+        int chunks = chunks(size);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c, from = (int) ((long) size * c / chunks), to = (int) ((long) size * (c + 1) / chunks);
+            tasks.add(ForkJoinTask.adapt(() -> scan.scan(chunk, from, to)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+}
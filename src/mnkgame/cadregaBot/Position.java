@@ -0,0 +1,212 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A position of an (M, N, K) game, which can be written as a line of text:
+ * <pre>M N K side rows</pre>
+ * where side is the player to move ({@code x} for P1, {@code o} for P2) and rows are the rows of the board
+ * separated by {@code /}. Every row contains {@code x} for the cells of P1, {@code o} for the cells of P2
+ * and numbers for runs of free cells. For example, {@code 3 3 3 o 3/1x1/3} is tic-tac-toe after P1 has taken the center.
+ */
+public final class Position {
+
+    public final int M, N, K;
+    private final MNKCellState[][] board;
+    private final MNKCellState toMove;
+
+    /**
+     * Creates a new {@code Position}.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @param board The board. It is copied.
+     * @param toMove The player to move.
+     */
+    public Position(int M, int N, int K, MNKCellState[][] board, MNKCellState toMove) {
+        this.M = M;
+        this.N = N;
+        this.K = K;
+        this.board = new MNKCellState[M][];
+        for (int i = 0; i < M; i++) {
+            this.board[i] = board[i].clone();
+        }
+        this.toMove = toMove;
+    }
+
+    /**
+     * Parses a position written as described in the documentation of this class.
+     *
+     * @param line The position.
+     * @return The parsed position.
+     * @throws IllegalArgumentException If the line is not a valid position.
+     */
+    public static Position parse(String line) throws IllegalArgumentException {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Expected 5 fields: " + line);
+        }
+        int M, N, K;
+        try {
+            M = Integer.parseInt(fields[0]);
+            N = Integer.parseInt(fields[1]);
+            K = Integer.parseInt(fields[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Illegal integer format for M, N or K: " + line);
+        }
+        if (M <= 0 || N <= 0 || K <= 0) {
+            throw new IllegalArgumentException("M, N and K must be larger than 0: " + line);
+        }
+
+        MNKCellState toMove = state(fields[3].length() == 1 ? fields[3].charAt(0) : '?', line);
+        String[] rows = fields[4].split("/", -1);
+        if (rows.length != M) {
+            throw new IllegalArgumentException("Expected " + M + " rows: " + line);
+        }
+
+        MNKCellState[][] board = new MNKCellState[M][N];
+        int p1 = 0, p2 = 0;
+        for (int i = 0; i < M; i++) {
+            int j = 0, c = 0;
+            while (c < rows[i].length()) {
+                char ch = rows[i].charAt(c);
+                if (Character.isDigit(ch)) {
+                    // A run of free cells
+                    int run = 0;
+                    while (c < rows[i].length() && Character.isDigit(rows[i].charAt(c))) {
+                        run = Math.min(run * 10 + (rows[i].charAt(c++) - '0'), N + 1); // Capped to avoid overflows
+                    }
+                    if (j + run > N) {
+                        break;
+                    }
+                    for (int r = 0; r < run; r++) {
+                        board[i][j++] = MNKCellState.FREE;
+                    }
+                } else {
+                    MNKCellState state = state(ch, line);
+                    if (j == N) {
+                        break;
+                    }
+                    if (state == MNKCellState.P1) {
+                        p1++;
+                    } else {
+                        p2++;
+                    }
+                    board[i][j++] = state;
+                    c++;
+                }
+            }
+            if (j != N || c != rows[i].length()) {
+                throw new IllegalArgumentException("Row " + (i + 1) + " must contain " + N + " cells: " + line);
+            }
+        }
+        if (p1 - p2 != (toMove == MNKCellState.P1 ? 0 : 1)) {
+            throw new IllegalArgumentException("The number of cells of the players doesn't match the player to move: " + line);
+        }
+        return new Position(M, N, K, board, toMove);
+    }
+
+    private static MNKCellState state(char ch, String line) {
+        switch (ch) {
+            case 'x':
+                return MNKCellState.P1;
+            case 'o':
+                return MNKCellState.P2;
+            default:
+                throw new IllegalArgumentException("Illegal character '" + ch + "': " + line);
+        }
+    }
+
+    /**
+     * Returns the state of the provided cell.
+     *
+     * @param i The row of the cell.
+     * @param j The column of the cell.
+     * @return The state of the cell.
+     */
+    public MNKCellState getState(int i, int j) {
+        return board[i][j];
+    }
+
+    /**
+     * Returns the player to move.
+     *
+     * @return The player to move.
+     */
+    public MNKCellState getToMove() {
+        return toMove;
+    }
+
+    /**
+     * Returns the free cells, row by row.
+     *
+     * @return The free cells.
+     */
+    public MNKCell[] getFreeCells() {
+        List<MNKCell> FC = new ArrayList<>();
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (board[i][j] == MNKCellState.FREE) {
+                    FC.add(new MNKCell(i, j));
+                }
+            }
+        }
+        return FC.toArray(new MNKCell[0]);
+    }
+
+    /**
+     * Returns the marked cells, alternating the players as if they were the moves of a game.
+     * The order of the moves of a player is not meaningful.
+     *
+     * @return The marked cells.
+     */
+    public MNKCell[] getMarkedCells() {
+        List<MNKCell> p1 = new ArrayList<>(), p2 = new ArrayList<>();
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (board[i][j] == MNKCellState.P1) {
+                    p1.add(new MNKCell(i, j, MNKCellState.P1));
+                } else if (board[i][j] == MNKCellState.P2) {
+                    p2.add(new MNKCell(i, j, MNKCellState.P2));
+                }
+            }
+        }
+        MNKCell[] MC = new MNKCell[p1.size() + p2.size()];
+        for (int m = 0; m < MC.length; m++) {
+            MC[m] = (m % 2 == 0 ? p1 : p2).get(m / 2);
+        }
+        return MC;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(M).append(' ').append(N).append(' ').append(K).append(' ').append(toMove == MNKCellState.P1 ? 'x' : 'o').append(' ');
+        for (int i = 0; i < M; i++) {
+            if (i > 0) {
+                builder.append('/');
+            }
+            int free = 0;
+            for (int j = 0; j < N; j++) {
+                if (board[i][j] == MNKCellState.FREE) {
+                    free++;
+                    continue;
+                }
+                if (free > 0) {
+                    builder.append(free);
+                    free = 0;
+                }
+                builder.append(board[i][j] == MNKCellState.P1 ? 'x' : 'o');
+            }
+            if (free > 0) {
+                builder.append(free);
+            }
+        }
+        return builder.toString();
+    }
+}
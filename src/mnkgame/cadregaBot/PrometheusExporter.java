@@ -0,0 +1,105 @@
+package mnkgame.cadregaBot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes {@link EngineMetrics} to a file in the Prometheus text format, e.g. for the textfile collector
+ * of the node exporter. The file is replaced atomically, so a scraper never reads a partial file.
+ */
+public final class PrometheusExporter {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final EngineMetrics metrics;
+    private final Path file;
+
+    /**
+     * Creates a new {@code PrometheusExporter}.
+     *
+     * @param metrics The metrics to export.
+     * @param file The file to write.
+     */
+    public PrometheusExporter(EngineMetrics metrics, Path file) {
+        this.metrics = metrics;
+        this.file = file;
+    }
+
+    /**
+     * Starts writing the file periodically on a daemon thread.
+     *
+     * @param periodSeconds The period, in seconds.
+     * @throws IllegalArgumentException If the period is not positive.
+     */
+    public void start(long periodSeconds) throws IllegalArgumentException {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("The period must be larger than 0");
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CadregaBot metrics exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                write();
+            } catch (IOException e) {
+                System.err.println("CadregaBot: cannot write " + file + ": " + e);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes the metrics to the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void write() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the metrics to the provided writer.
+     *
+     * @param writer The writer.
+     * @throws IOException If the metrics cannot be written.
+     */
+    public void write(Writer writer) throws IOException {
+        metric(writer, "cadregabot_depth", "gauge", "Depth of the visit of the last move.", metrics.getCurrentDepth());
+        metric(writer, "cadregabot_first_move_depth", "gauge", "Depth of the visit of the last first move after initPlayer.", metrics.getFirstMoveDepth());
+        metric(writer, "cadregabot_nodes_per_second", "gauge", "Nodes visited per second by the last move.", metrics.getNodesPerSecond());
+        metric(writer, "cadregabot_tree_bytes", "gauge", "Estimated heap used by the tree of the last move.", metrics.getTreeBytes());
+        metric(writer, "cadregabot_moves_total", "counter", "Moves played.", metrics.getMovesPlayed());
+        metric(writer, "cadregabot_timeout_aborts_total", "counter", "Searches aborted by the time limit.", metrics.getTimeoutAborts());
+        metric(writer, "cadregabot_node_limit_aborts_total", "counter", "Searches aborted by the node limit.", metrics.getNodeLimitAborts());
+        metric(writer, "cadregabot_fallback_moves_total", "counter", "Moves selected by the heuristic because the search didn't find a best move.", metrics.getFallbackMoves());
+
+        LogHistogram latency = metrics.getLatency();
+        writer.write("# HELP cadregabot_move_latency_seconds Time taken to select a move.\n");
+        writer.write("# TYPE cadregabot_move_latency_seconds summary\n");
+        for (double quantile : QUANTILES) {
+            writer.write(String.format(Locale.ROOT, "cadregabot_move_latency_seconds{quantile=\"%s\"} %s\n",
+                    quantile, latency.getPercentile(quantile * 100) / 1e6));
+        }
+        writer.write(String.format(Locale.ROOT, "cadregabot_move_latency_seconds_sum %s\n", latency.getSum() / 1e6));
+        writer.write(String.format(Locale.ROOT, "cadregabot_move_latency_seconds_count %d\n", latency.getCount()));
+    }
+
+    private static void metric(Writer writer, String name, String type, String help, long value) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+        writer.write(name + " " + value + "\n");
+    }
+}
@@ -0,0 +1,128 @@
+package mnkgame.cadregaBot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JDK Flight Recorder events emitted by {@link CadregaBot}.
+ * <p>
+ * The events are enabled by starting a recording (e.g. {@code java -XX:StartFlightRecording=filename=bot.jfr ...}) and
+ * can be inspected with the standard JFR tools, e.g. {@code jfr print --events mnkgame.cadregaBot.* bot.jfr}.
+ * When no recording is active, {@link Event#begin()} and {@link Event#commit()} are no-ops which the JIT
+ * removes together with the event object, and the fields are set only if {@link Event#shouldCommit()}.
+ */
+final class SearchEvents {
+
+    private static final String CATEGORY = "CadregaBot";
+
+    /**
+     * The whole execution of selectCell.
+     */
+    @Name("mnkgame.cadregaBot.SelectCell")
+    @Label("Select Cell")
+    @Category(CATEGORY)
+    @Description("Selection of a move by CadregaBot")
+    @StackTrace(false)
+    static final class SelectCell extends Event {
+        @Label("Free Cells")
+        int freeCells;
+
+        @Label("Depth")
+        @Description("Depth of the visit calculated at the start of the search")
+        int depth;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Move")
+        String move;
+
+        @Label("Score")
+        int score;
+    }
+
+    /**
+     * The evaluation of the moves of the root by the heuristic.
+     */
+    @Name("mnkgame.cadregaBot.RootEvaluation")
+    @Label("Root Evaluation")
+    @Category(CATEGORY)
+    @Description("Generation and sorting of the moves of the root")
+    @StackTrace(false)
+    static final class RootEvaluation extends Event {
+        @Label("Moves")
+        int moves;
+
+        @Label("Reused")
+        @Description("Whether the moves had already been generated by the search of the previous move")
+        boolean reused;
+    }
+
+    /**
+     * A visit of the tree by alphabetaStart.
+     */
+    @Name("mnkgame.cadregaBot.Search")
+    @Label("Search")
+    @Category(CATEGORY)
+    @Description("Alphabeta visit of the tree")
+    @StackTrace(false)
+    static final class Search extends Event {
+        @Label("Depth")
+        int depth;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Result")
+        @Description("Value of the best move, if the visit has been completed")
+        int result;
+
+        @Label("Completed")
+        boolean completed;
+    }
+
+    /**
+     * The reuse of the tree of the previous move.
+     */
+    @Name("mnkgame.cadregaBot.Reroot")
+    @Label("Reroot")
+    @Category(CATEGORY)
+    @Description("Search of the opponent move into the tree of the previous move")
+    @StackTrace(false)
+    static final class Reroot extends Event {
+        @Label("Opponent Move")
+        String opponentMove;
+
+        @Label("Hit")
+        @Description("Whether the move was found, so that its subtree becomes the new root")
+        boolean hit;
+    }
+
+    /**
+     * The abort of a search which reached its limit.
+     */
+    @Name("mnkgame.cadregaBot.Abort")
+    @Label("Search Abort")
+    @Category(CATEGORY)
+    @Description("Search stopped by its time, node or memory limit, or by stop()")
+    @StackTrace(false)
+    static final class Abort extends Event {
+        @Label("Reason")
+        String reason;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Nodes")
+        long nodes;
+    }
+
+    // Private constructor
+    private SearchEvents() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,158 @@
+package mnkgame.cadregaBot;
+
+/**
+ * The criterion used by {@link CadregaBot} to stop the search of a move.
+ * <ul>
+ *     <li>{@link Type#TIME}: the search stops when the time runs out. The visit depth is calculated from the number
+ *     of nodes visited in the time of the previous rounds. This is the default.</li>
+ *     <li>{@link Type#NODES}: the search stops after visiting a number of nodes, and the visit depth is calculated
+ *     from that number. The visit doesn't depend on time, so it is exactly repeatable.</li>
+ *     <li>{@link Type#DEPTH}: the tree is fully visited up to a fixed depth, without any time limit.</li>
+ * </ul>
+ * The limit can also be set for all the {@code CadregaBot}s of a JVM using the system properties
+ * {@code cadregaBot.limit} ({@code time}, {@code time:<ms>}, {@code nodes:<nodes>} or {@code depth:<depth>}) and
+ * {@code cadregaBot.clock} ({@code system} or {@code cpu}), e.g. to run tournaments in node limited mode.
+ */
+public final class SearchLimit {
+
+    /**
+     * The type of a {@link SearchLimit}.
+     */
+    public enum Type {
+        TIME, NODES, DEPTH
+    }
+
+    /**
+     * The default limit: the time given to selectCell by initPlayer, measured by {@link Clock#SYSTEM}.
+     */
+    public static final SearchLimit DEFAULT = new SearchLimit(Type.TIME, -1, Clock.SYSTEM);
+
+    private final Type type;
+    private final long value;
+    private final Clock clock;
+
+    private SearchLimit(Type type, long value, Clock clock) {
+        this.type = type;
+        this.value = value;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a time limit.
+     *
+     * @param millis The time available to select a move, in milliseconds.
+     * @return The limit.
+     */
+    public static SearchLimit time(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The time limit must be larger than 0");
+        }
+        return new SearchLimit(Type.TIME, millis, Clock.SYSTEM);
+    }
+
+    /**
+     * Returns a node limit.
+     *
+     * @param nodes The number of nodes to visit to select a move.
+     * @return The limit.
+     */
+    public static SearchLimit nodes(long nodes) {
+        if (nodes <= 0) {
+            throw new IllegalArgumentException("The node limit must be larger than 0");
+        }
+        return new SearchLimit(Type.NODES, nodes, Clock.SYSTEM);
+    }
+
+    /**
+     * Returns a depth limit.
+     *
+     * @param depth The depth of the visit.
+     * @return The limit.
+     */
+    public static SearchLimit depth(int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("The depth limit must be larger than 0");
+        }
+        return new SearchLimit(Type.DEPTH, depth, Clock.SYSTEM);
+    }
+
+    /**
+     * Returns a copy of this limit which reads the time from the provided clock.
+     *
+     * @param clock The clock.
+     * @return The new limit.
+     */
+    public SearchLimit withClock(Clock clock) {
+        return new SearchLimit(type, value, clock);
+    }
+
+    /**
+     * Returns the limit set by the system properties described in the documentation of this class,
+     * or {@link #DEFAULT} if they are not set.
+     *
+     * @return The limit.
+     * @throws IllegalArgumentException If the system properties are not valid.
+     */
+    public static SearchLimit fromSystemProperties() throws IllegalArgumentException {
+        String limit = System.getProperty("cadregaBot.limit", "time"), clock = System.getProperty("cadregaBot.clock", "system");
+        String[] fields = limit.split(":");
+        SearchLimit searchLimit;
+        try {
+            switch (fields[0]) {
+                case "time":
+                    searchLimit = fields.length == 1 ? DEFAULT : time(Long.parseLong(fields[1]));
+                    break;
+                case "nodes":
+                    searchLimit = nodes(Long.parseLong(fields[1]));
+                    break;
+                case "depth":
+                    searchLimit = depth(Integer.parseInt(fields[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Illegal cadregaBot.limit: " + limit);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Illegal cadregaBot.limit: " + limit);
+        }
+        switch (clock) {
+            case "system":
+                return searchLimit;
+            case "cpu":
+                return searchLimit.withClock(Clock.THREAD_CPU);
+            default:
+                throw new IllegalArgumentException("Illegal cadregaBot.clock: " + clock);
+        }
+    }
+
+    /**
+     * Returns the type of this limit.
+     *
+     * @return The type of this limit.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the value of this limit: milliseconds (or -1 for the time given by initPlayer), nodes or depth.
+     *
+     * @return The value of this limit.
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the clock used to measure the time.
+     *
+     * @return The clock used to measure the time.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    @Override
+    public String toString() {
+        return type.name().toLowerCase() + (value > 0 ? ":" + value : "") + (clock == Clock.THREAD_CPU ? " (cpu)" : "");
+    }
+}
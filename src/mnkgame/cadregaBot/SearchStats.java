@@ -0,0 +1,309 @@
+package mnkgame.cadregaBot;
+
+import java.util.Locale;
+
+/**
+ * Statistics of the search of a move, filled in by {@link CadregaBot} during selectCell
+ * (see {@link CadregaBot#getSearchStats()}). The counters are plain fields, so updating them costs a few increments per node.
+ * <p>
+ * {@link CadregaBot} doesn't use iterative deepening: the tree is visited once up to the depth calculated at the start
+ * of selectCell, so the only completed depth is that one, if the visit finished before the search limit.
+ */
+public final class SearchStats {
+
+    /**
+     * The number of tracked move indexes of {@link #getCutoffs(int)}. Cutoffs at larger indexes are counted together.
+     */
+    public static final int CUTOFF_INDEXES = 8;
+
+    // Estimated size of a Node and of the header of an array, assuming compressed references
+    private static final long NODE_BYTES = 48, ARRAY_BYTES = 16;
+
+    private int depth, depthReached;
+    private long nodes, leaves, reusedChildren, createdChildren, expandedNodes, generatedMoves, transpositionHits;
+    private final long[] cutoffs = new long[CUTOFF_INDEXES];
+    private boolean rootReused, completed;
+    private long startNanos, completedNanos, elapsedNanos;
+
+    /**
+     * Resets the statistics at the start of a search.
+     *
+     * @param depth The depth of the visit.
+     */
+    void start(int depth) {
+        this.depth = depth;
+        depthReached = 0;
+        nodes = 0;
+        leaves = 0;
+        reusedChildren = 0;
+        createdChildren = 0;
+        expandedNodes = 0;
+        generatedMoves = 0;
+        transpositionHits = 0;
+        for (int i = 0; i < CUTOFF_INDEXES; i++) {
+            cutoffs[i] = 0;
+        }
+        rootReused = false;
+        completed = false;
+        completedNanos = -1;
+        elapsedNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts a visited node.
+     *
+     * @param ply The distance of the node from the root.
+     */
+    void node(int ply) {
+        nodes++;
+        if (ply > depthReached) {
+            depthReached = ply;
+        }
+    }
+
+    /**
+     * Counts a leaf, i.e. a node evaluated by the heuristic or a terminal node.
+     */
+    void leaf() {
+        leaves++;
+    }
+
+    /**
+     * Counts a node whose score has been taken from the transposition table.
+     */
+    void transpositionHit() {
+        transpositionHits++;
+    }
+
+    /**
+     * Counts a beta cutoff.
+     *
+     * @param moveIndex The index of the move which caused the cutoff.
+     */
+    void cutoff(int moveIndex) {
+        cutoffs[Math.min(moveIndex, CUTOFF_INDEXES - 1)]++;
+    }
+
+    /**
+     * Counts a child node which was already created by the search of a previous move.
+     */
+    void reusedChild() {
+        reusedChildren++;
+    }
+
+    /**
+     * Counts a child node created by this search.
+     */
+    void createdChild() {
+        createdChildren++;
+    }
+
+    /**
+     * Counts a visited node whose moves have been generated.
+     *
+     * @param moves The number of moves of the node.
+     */
+    void expanded(int moves) {
+        expandedNodes++;
+        generatedMoves += moves;
+    }
+
+    /**
+     * Records that the root is a node of the tree of the previous move.
+     */
+    void rootReused() {
+        rootReused = true;
+    }
+
+    /**
+     * Records that the visit has been completed up to {@link #getDepth()}.
+     */
+    void completed() {
+        completed = true;
+        completedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Records the end of the search.
+     */
+    void stop() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Returns the depth of the visit calculated at the start of the search.
+     *
+     * @return The depth of the visit.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the maximum distance from the root of a visited node.
+     *
+     * @return The depth reached.
+     */
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    /**
+     * Returns whether the visit has been completed before reaching the search limit.
+     *
+     * @return Whether the visit has been completed.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Returns the time taken to complete the visit up to {@link #getDepth()}.
+     *
+     * @return The time in nanoseconds, -1 if the visit has not been completed.
+     */
+    public long getCompletedNanos() {
+        return completedNanos;
+    }
+
+    /**
+     * Returns the duration of the search.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of visited nodes.
+     *
+     * @return The number of visited nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of leaves, i.e. nodes evaluated by the heuristic and terminal nodes.
+     *
+     * @return The number of leaves.
+     */
+    public long getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Returns the number of visited nodes whose score has been taken from the transposition table.
+     *
+     * @return The number of transposition hits.
+     */
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    /**
+     * Returns the number of beta cutoffs caused by the move with the provided index.
+     * The last index counts all the cutoffs caused by moves with index larger or equal than it.
+     *
+     * @param moveIndex The index of the move, less than {@link #CUTOFF_INDEXES}.
+     * @return The number of cutoffs.
+     */
+    public long getCutoffs(int moveIndex) {
+        return cutoffs[moveIndex];
+    }
+
+    /**
+     * Returns the total number of beta cutoffs.
+     *
+     * @return The number of cutoffs.
+     */
+    public long getTotalCutoffs() {
+        long total = 0;
+        for (long c : cutoffs) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Returns whether the root is a node of the tree of the previous move.
+     *
+     * @return Whether the root has been reused.
+     */
+    public boolean isRootReused() {
+        return rootReused;
+    }
+
+    /**
+     * Returns the number of visited nodes which were already created by the search of a previous move.
+     *
+     * @return The number of reused nodes.
+     */
+    public long getReusedChildren() {
+        return reusedChildren;
+    }
+
+    /**
+     * Returns the number of child nodes created by this search.
+     *
+     * @return The number of created nodes.
+     */
+    public long getCreatedChildren() {
+        return createdChildren;
+    }
+
+    /**
+     * Returns an estimate of the heap used by the visited part of the tree: its nodes, with their arrays of moves
+     * and children. The parts of a reused tree which have not been visited are not counted.
+     *
+     * @return The estimated heap used by the tree, in bytes.
+     */
+    public long getEstimatedTreeBytes() {
+        return (1 + createdChildren + reusedChildren) * NODE_BYTES + expandedNodes * 2 * ARRAY_BYTES
+                + generatedMoves * (Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Returns the number of visited nodes per second.
+     *
+     * @return The number of nodes per second.
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the effective branching factor, i.e. the b such that b^depth = nodes.
+     *
+     * @return The effective branching factor, 0 if no node below the root has been visited.
+     */
+    public double getEffectiveBranchingFactor() {
+        return depthReached == 0 ? 0 : Math.pow(nodes, 1.0 / depthReached);
+    }
+
+    /**
+     * Returns the statistics as a single line, suitable for logging.
+     *
+     * @return The statistics.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "depth %d/%d%s nodes %d leaves %d time %.1f ms nps %.0f ebf %.2f",
+                depthReached, depth, completed ? String.format(Locale.ROOT, " (completed in %.1f ms)", completedNanos / 1e6) : "",
+                nodes, leaves, elapsedNanos / 1e6, getNodesPerSecond(), getEffectiveBranchingFactor()));
+        sb.append(" cutoffs");
+        long total = getTotalCutoffs();
+        for (int i = 0; i < CUTOFF_INDEXES; i++) {
+            sb.append(i == 0 ? " " : "/").append(total == 0 ? 0 : Math.round(cutoffs[i] * 100.0 / total));
+        }
+        sb.append("% of ").append(total);
+        sb.append(" reuse ").append(rootReused ? "root " : "").append(reusedChildren);
+        if (transpositionHits > 0) {
+            sb.append(" tt ").append(transpositionHits);
+        }
+        return sb.toString();
+    }
+}
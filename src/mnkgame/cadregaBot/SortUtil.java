@@ -1,138 +1,188 @@
 package mnkgame.cadregaBot;
 
-import java.util.LinkedList;
-
 /**
- * Utility to sort arrays of {@link EvaluateUtil}s.
+ * Utility to sort arrays of moves (see {@link MoveUtil}).
  */
 public final class SortUtil {
 
     /**
-     * Orders the array of {@link EvaluatedCell}s in base of the provided nth digit (in base 16) of the cell's value.
+     * Orders (stably) the first length moves of the provided array by descending value,
+     * in base of the provided nth digit (in base 256) of the move's value.
      *
-     * @param cells The array to order.
-     * @param digit The nth digit (in base 16) of the cell's value to use to order.
+     * @param from The array to order.
+     * @param to The array where the ordered moves are put.
+     * @param length The number of moves to order.
+     * @param digit The nth digit (in base 256) of the move's value to use to order.
+     * @param counts An array of length 256 used to count the moves of every digit.
      */
-    public static void bucketSort(EvaluatedCell[] cells, int digit) {
-        LinkedList<EvaluatedCell>[] bucketArray = new LinkedList[16]; // Array for bucket sort. It has length 16 since we're using hexadecimal
-
-        // Put the cells into the right bucket
-        for (EvaluatedCell evaluatedCell : cells) {
-            int cell = getDigit(evaluatedCell.getValue(), digit);
-            if (bucketArray[cell] == null) {
-                bucketArray[cell] = new LinkedList<>();
-            }
-            bucketArray[cell].add(evaluatedCell);
+    public static void countingSort(long[] from, long[] to, int length, int digit, int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
         }
 
-        // Put cells back into the array to sort
-        int evaluatedCellInsertionIndex = 0;
-        for (int i = bucketArray.length - 1; i >= 0; i--) {
-            if (bucketArray[i] != null) {
-                for (EvaluatedCell j : bucketArray[i]) {
-                    cells[evaluatedCellInsertionIndex] = j;
-                    evaluatedCellInsertionIndex++;
-                }
-            }
+        // Count the moves of every digit
+        for (int i = 0; i < length; i++) {
+            counts[getDigit(MoveUtil.getValue(from[i]), digit)]++;
+        }
+
+        // Turn counts into the insertion index of every digit (higher digits first)
+        int insertionIndex = 0;
+        for (int i = counts.length - 1; i >= 0; i--) {
+            int count = counts[i];
+            counts[i] = insertionIndex;
+            insertionIndex += count;
+        }
+
+        // Put moves into the right place
+        for (int i = 0; i < length; i++) {
+            to[counts[getDigit(MoveUtil.getValue(from[i]), digit)]++] = from[i];
         }
     }
 
     /**
-     * Orders the provided array of {@link EvaluatedCell}s using Radix Sort algorithm.
+     * Orders the first length moves of the provided array by descending value using Radix Sort algorithm.
+     * No memory is allocated, the provided buffers are used instead.
      *
-     * @param cells The array to order.
+     * @param moves The array to order.
+     * @param length The number of moves to order.
+     * @param buffer An array at least as long as length.
+     * @param counts An array of length 256.
      */
-    public static void radixSort(EvaluatedCell[] cells) {
+    public static void radixSort(long[] moves, int length, long[] buffer, int[] counts) {
         // Simple cases
-        if (cells.length <= 1) {
+        if (length <= 1) {
             return;
         }
-        if (cells.length == 2) {
-            if (cells[0].getValue() > cells[1].getValue()) {
-                EvaluatedCell tmp = cells[0];
-                cells[0] = cells[1];
-                cells[1] = tmp;
-                return;
+        if (length == 2) {
+            if (MoveUtil.getValue(moves[0]) < MoveUtil.getValue(moves[1])) {
+                long tmp = moves[0];
+                moves[0] = moves[1];
+                moves[1] = tmp;
             }
+            return;
         }
 
-        // Find the maximum length of the cells' value in hexadecimal
+        // Find the maximum length of the moves' value in base 256
         int maxLength = 0;
-        for (EvaluatedCell cell : cells) {
-            int thisLength = digitCount(cell.getValue());
-            if (thisLength < 0) {
-                throw new IllegalArgumentException("EvaluatedCell's value is less than zero");
+        for (int i = 0; i < length; i++) {
+            int value = MoveUtil.getValue(moves[i]);
+            if (value < 0) {
+                throw new IllegalArgumentException("Move's value is less than zero");
             }
+            int thisLength = digitCount(value);
             if (thisLength > maxLength) {
                 maxLength = thisLength;
             }
         }
 
-        // Sort using bucket sort
+        // Sort using counting sort, swapping the role of the arrays at every digit
+        long[] from = moves, to = buffer;
         for (int j = 0; j < maxLength; j++) {
-            bucketSort(cells, j);
+            countingSort(from, to, length, j, counts);
+            long[] tmp = from;
+            from = to;
+            to = tmp;
+        }
+
+        if (from != moves) {
+            // The result is in the buffer
+            System.arraycopy(from, 0, moves, 0, length);
         }
     }
 
     /**
-     * Returns the nth hexadecimal digit of num.
+     * Rearranges the provided moves into a max heap, so that the best ones can be selected
+     * incrementally using {@link #selectNext(long[], int)}.
+     * <p>
+     * The heap is stored backwards: its root is the last element of the array. This way, every time
+     * the best move is extracted, it can be put right after the already selected ones.
+     *
+     * @param moves The moves to rearrange.
+     */
+    public static void heapify(long[] moves) {
+        for (int h = moves.length / 2 - 1; h >= 0; h--) {
+            siftDown(moves, h, moves.length);
+        }
+    }
+
+    /**
+     * Moves the best move of the heap built by {@link #heapify(long[])} to position selected,
+     * i.e. right after the already selected moves. Costs O(log n).
+     *
+     * @param moves The moves.
+     * @param selected The number of moves already selected. The moves from selected to the end of the array are the heap.
+     */
+    public static void selectNext(long[] moves, int selected) {
+        int last = moves.length - 1, size = moves.length - selected;
+
+        // The root of the heap is in the last position, while its last element is in position selected
+        long tmp = moves[last];
+        moves[last] = moves[selected];
+        moves[selected] = tmp;
+
+        siftDown(moves, 0, size - 1);
+    }
+
+    /**
+     * Moves down the hth element of the heap until it's greater than its children.
+     * The hth element of the heap is stored in position {@code moves.length - 1 - h}.
+     *
+     * @param moves The moves.
+     * @param h The index into the heap of the element to move down.
+     * @param size The size of the heap.
+     */
+    private static void siftDown(long[] moves, int h, int size) {
+        int last = moves.length - 1;
+        long move = moves[last - h];
+        int child;
+        while ((child = 2 * h + 1) < size) {
+            if (child + 1 < size && moves[last - child - 1] > moves[last - child]) {
+                child++; // The right child is greater
+            }
+            if (moves[last - child] <= move) {
+                break;
+            }
+            moves[last - h] = moves[last - child];
+            h = child;
+        }
+        moves[last - h] = move;
+    }
+
+    /**
+     * Returns the nth digit (in base 256) of num.
      *
      * @param num The number. Must be positive.
      * @param digit The digit to return.
-     * @return The nth hexadecimal digit of num.
+     * @return The nth digit (in base 256) of num.
      */
     private static int getDigit(int num, int digit) {
-        // this function returns the nth hexadecimal digit of num
-
-        // In base 16 a digit equals to 4 binary digits.
-        // So, the parameter digit is firstly multiplied by 4.
-        // Then, the parameter num is shifted by that amount and the first 4 digits are returned.
-        return (num >>> (digit << 2)) & 0xF;
+        // In base 256 a digit equals to 8 binary digits.
+        // So, the parameter digit is firstly multiplied by 8.
+        // Then, the parameter num is shifted by that amount and the first 8 digits are returned.
+        return (num >>> (digit << 3)) & 0xFF;
     }
 
     /**
-     * Returns the number of digits of n in hexadecimal
+     * Returns the number of digits of n in base 256
      *
      * @param n The number. Must be positive.
-     * @return The number of digits of n in hexadecimal
+     * @return The number of digits of n in base 256
      */
     private static int digitCount(int n) {
-        // Adapted from https://stackoverflow.com/a/1308407
-
-        // For ints and base 16, the maximum number of digits is 8
-        // (Integer.MAX_VALUE is 0x7FFFFFFF, which is 8 digits long)
+        // For ints and base 256, the maximum number of digits is 4
+        // (Integer.MAX_VALUE is 0x7FFFFFFF, which is 4 digits long)
         if (n < 0x10000) {
-            // 4 or less
-            if (n < 0x100) {
-                // 1 or 2
-                if (n < 0x10)
-                    return 1;
-                else
-                    return 2;
-            } else {
-                // 3 or 4
-                if (n < 0x1000)
-                    return 3;
-                else {
-                    return 4;
-                }
-            }
+            // 1 or 2
+            if (n < 0x100)
+                return 1;
+            else
+                return 2;
         } else {
-            // 5 or more
-            if (n < 0x1000000) {
-                // 5 or 6
-                if (n < 0x100000)
-                    return 5;
-                else
-                    return 6;
-            } else {
-                // 7 or 8
-                if (n < 0x10000000)
-                    return 7;
-                else {
-                    return 8;
-                }
-            }
+            // 3 or 4
+            if (n < 0x1000000)
+                return 3;
+            else
+                return 4;
         }
     }
 
@@ -0,0 +1,205 @@
+package mnkgame.cadregaBot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A transposition table stored off-heap, in direct {@link ByteBuffer}s, so that it can take gigabytes of memory
+ * without any work for the garbage collector. It can be shared by any number of searching threads without locks.
+ * <p>
+ * Every entry takes 16 bytes: the key XOR the data, and the data, which packs the score, the remaining depth, the
+ * type of bound and the age of the search which stored it. Every word is written atomically but the two words of an
+ * entry aren't, so two threads storing the same entry at the same time can leave the words of different entries:
+ * such an entry is detected, and ignored, because the XOR of its words is not the key (lockless hashing).
+ * <p>
+ * Entries are grouped into buckets of 4 (64 bytes, a cache line). A new entry replaces the one with the same key, unless
+ * that one is deeper, was stored by the same search and the new score is not exact. Otherwise it replaces the one
+ * stored by the oldest search or, among those of the same search, the one with the lowest depth.
+ * <p>
+ * The table of all the {@link CadregaBot}s of the JVM is created with the size in MB set by the system property
+ * {@code cadregaBot.tt} (see {@link #shared()}).
+ */
+public final class TranspositionTable {
+
+    /**
+     * The types of bound of the score of an entry.
+     */
+    static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16, BUCKET_ENTRIES = 4, BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+    private static final int SEGMENT_SHIFT = 30; // Every buffer takes 1 GB
+    private static final int MAX_DEPTH = 0xFF, AGE_MASK = 0xFF;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final TranspositionTable SHARED = Long.getLong("cadregaBot.tt", 0) > 0
+            ? new TranspositionTable(Long.getLong("cadregaBot.tt") << 20) : null;
+
+    private final ByteBuffer[] segments;
+    private final long bucketMask;
+    private final AtomicInteger age = new AtomicInteger();
+
+    /**
+     * Creates a new {@code TranspositionTable}.
+     *
+     * @param bytes The size of the table in bytes, rounded down to a power of two (of at least 64 bytes).
+     * @throws IllegalArgumentException If the size is less than 64 bytes.
+     * @throws OutOfMemoryError If there isn't enough direct memory (see {@code -XX:MaxDirectMemorySize}).
+     */
+    public TranspositionTable(long bytes) throws IllegalArgumentException {
+        if (bytes < BUCKET_BYTES) {
+            throw new IllegalArgumentException("The size of the transposition table must be at least " + BUCKET_BYTES + " bytes");
+        }
+        long size = Long.highestOneBit(bytes);
+        this.bucketMask = size / BUCKET_BYTES - 1;
+        long segmentBytes = Math.min(size, 1L << SEGMENT_SHIFT);
+        this.segments = new ByteBuffer[(int) (size / segmentBytes)];
+        for (int s = 0; s < segments.length; s++) {
+            segments[s] = ByteBuffer.allocateDirect((int) segmentBytes).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Returns the table shared by all the {@link CadregaBot}s of the JVM.
+     *
+     * @return The table, {@code null} if the system property {@code cadregaBot.tt} isn't set.
+     */
+    public static TranspositionTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts a new search, so that the entries of the previous ones are replaced first.
+     *
+     * @return The age of the new search.
+     */
+    int newSearch() {
+        return age.incrementAndGet() & AGE_MASK;
+    }
+
+    /**
+     * Returns the data of the entry with the provided key.
+     *
+     * @param key The key.
+     * @return The data of the entry (see {@link #score(long)}, {@link #depth(long)} and {@link #bound(long)}),
+     * 0 if the table doesn't contain the key.
+     */
+    long probe(long key) {
+        long bucket = (key & bucketMask) * BUCKET_BYTES;
+        ByteBuffer segment = segments[(int) (bucket >>> SEGMENT_SHIFT)];
+        int offset = (int) (bucket & ((1L << SEGMENT_SHIFT) - 1));
+        for (int e = 0; e < BUCKET_ENTRIES; e++, offset += ENTRY_BYTES) {
+            long check = (long) LONGS.getOpaque(segment, offset), data = (long) LONGS.getOpaque(segment, offset + 8);
+            if (data != 0 && (check ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores an entry.
+     *
+     * @param key The key.
+     * @param score The score.
+     * @param depth The remaining depth of the search of the score, capped to 255.
+     * @param bound The type of bound of the score.
+     * @param age The age of the search (see {@link #newSearch()}).
+     */
+    void store(long key, int score, int depth, int bound, int age) {
+        long data = (score & 0xFFFFFFFFL) | (long) Math.min(depth, MAX_DEPTH) << 32 | (long) bound << 40 | (long) age << 42;
+        long bucket = (key & bucketMask) * BUCKET_BYTES;
+        ByteBuffer segment = segments[(int) (bucket >>> SEGMENT_SHIFT)];
+        int offset = (int) (bucket & ((1L << SEGMENT_SHIFT) - 1));
+
+        // Replace the entry with the same key or a free one, else the oldest one, else the one with the lowest depth
+        int victim = offset, victimRank = Integer.MAX_VALUE;
+        for (int e = 0, o = offset; e < BUCKET_ENTRIES; e++, o += ENTRY_BYTES) {
+            long check = (long) LONGS.getOpaque(segment, o), old = (long) LONGS.getOpaque(segment, o + 8);
+            if (old == 0) {
+                victim = o;
+                break;
+            }
+            int oldAge = age(old);
+            if ((check ^ old) == key) {
+                // A deeper result of the same search is kept, unless the new score is exact
+                if (oldAge == age && depth(old) > depth && bound != EXACT) {
+                    return;
+                }
+                victim = o;
+                break;
+            }
+            int distance = (age - oldAge) & AGE_MASK; // The number of searches since the entry was stored
+            int rank = (AGE_MASK - distance) << 8 | depth(old);
+            if (rank < victimRank) {
+                victim = o;
+                victimRank = rank;
+            }
+        }
+        LONGS.setOpaque(segment, victim, key ^ data);
+        LONGS.setOpaque(segment, victim + 8, data);
+    }
+
+    /**
+     * Returns the score of the data of an entry.
+     *
+     * @param data The data.
+     * @return The score.
+     */
+    static int score(long data) {
+        return (int) data;
+    }
+
+    /**
+     * Returns the remaining depth of the data of an entry.
+     *
+     * @param data The data.
+     * @return The depth.
+     */
+    static int depth(long data) {
+        return (int) (data >>> 32) & MAX_DEPTH;
+    }
+
+    /**
+     * Returns the age of the search which stored the data of an entry.
+     *
+     * @param data The data.
+     * @return The age (see {@link #newSearch()}).
+     */
+    static int age(long data) {
+        return (int) (data >>> 42) & AGE_MASK;
+    }
+
+    /**
+     * Returns the type of bound of the data of an entry.
+     *
+     * @param data The data.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    /**
+     * Returns the size of the table.
+     *
+     * @return The size in bytes.
+     */
+    public long getBytes() {
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    /**
+     * Clears every entry.
+     */
+    public void clear() {
+        for (ByteBuffer segment : segments) {
+            for (int offset = 0; offset < segment.capacity(); offset += 8) {
+                LONGS.setOpaque(segment, offset, 0L);
+            }
+        }
+    }
+}
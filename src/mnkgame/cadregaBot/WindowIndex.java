@@ -0,0 +1,165 @@
+package mnkgame.cadregaBot;
+
+import mnkgame.MNKCellState;
+
+/**
+ * Incrementally maintained index of the windows of the board.
+ * <p>
+ * A window is a sequence of K aligned cells (horizontally, vertically or diagonally). A window is live for a player
+ * if it doesn't contain any opponent's symbol, so the player can still complete it. A cell which doesn't lie in any
+ * window live for at least one player cannot change the outcome of the game anymore, and when no window is live
+ * for both players the game is a draw, even if there are still free cells.
+ */
+public final class WindowIndex {
+
+    private final int M, N, K;
+    private final MNKCellState[][] tmpBoard;
+
+    // The windows of the board (see EngineTables)
+    private final int windowCount;
+    private final int[] windowStart, windowStep;
+    private final int[][] cellWindows;
+
+    private final int[][] symbols; // Number of symbols of each player (indexed by MNKCellState#ordinal()) in every window
+    private final int[] liveWindows = new int[2]; // Number of windows live for each player
+    private final int[] cellLiveWindows; // Number of windows live for at least one player passing through every cell
+
+    /**
+     * Creates a new {@code WindowIndex}.
+     *
+     * @param M The M value of (M, N, K).
+     * @param N The N value of (M, N, K).
+     * @param K The K value of (M, N, K).
+     * @param tmpBoard The tmpBoard.
+     */
+    public WindowIndex(int M, int N, int K, MNKCellState[][] tmpBoard) {
+        this(EngineTables.of(M, N, K), tmpBoard);
+    }
+
+    /**
+     * Creates a new {@code WindowIndex} over the windows of the provided tables.
+     *
+     * @param tables The tables of the (M, N, K) configuration.
+     * @param tmpBoard The tmpBoard.
+     */
+    public WindowIndex(EngineTables tables, MNKCellState[][] tmpBoard) {
+        this.M = tables.M;
+        this.N = tables.N;
+        this.K = tables.K;
+        this.tmpBoard = tmpBoard;
+        this.windowCount = tables.windowCount;
+        this.windowStart = tables.windowStart;
+        this.windowStep = tables.windowStep;
+        this.cellWindows = tables.cellWindows;
+        this.symbols = new int[2][windowCount];
+        this.cellLiveWindows = new int[cellWindows.length];
+    }
+
+    /**
+     * Rebuilds the index from the current content of tmpBoard.
+     */
+    public void reset() {
+        for (int w = 0; w < windowCount; w++) {
+            symbols[0][w] = 0;
+            symbols[1][w] = 0;
+        }
+        liveWindows[0] = windowCount;
+        liveWindows[1] = windowCount;
+        for (int c = 0; c < cellLiveWindows.length; c++) {
+            cellLiveWindows[c] = cellWindows[c].length;
+        }
+
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                if (tmpBoard[i][j] != MNKCellState.FREE) {
+                    mark(i, j, tmpBoard[i][j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the provided player has marked the cell {@code (i, j)}.
+     *
+     * @param i The row of the cell.
+     * @param j The column of the cell.
+     * @param player The player who made the move.
+     */
+    public void mark(int i, int j, MNKCellState player) {
+        int p = player.ordinal(), o = 1 - p;
+        for (int w : cellWindows[i * N + j]) {
+            if (symbols[p][w]++ == 0) {
+                // The window is no longer live for the opponent
+                liveWindows[o]--;
+                if (symbols[o][w] != 0) {
+                    // The opponent has symbols in the window too: it was live only for the opponent, now it's dead
+                    updateCells(w, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the provided player has unmarked the cell {@code (i, j)}.
+     *
+     * @param i The row of the cell.
+     * @param j The column of the cell.
+     * @param player The player who had made the move.
+     */
+    public void unmark(int i, int j, MNKCellState player) {
+        int p = player.ordinal(), o = 1 - p;
+        for (int w : cellWindows[i * N + j]) {
+            if (--symbols[p][w] == 0) {
+                // The window is live again for the opponent
+                liveWindows[o]++;
+                if (symbols[o][w] != 0) {
+                    // The window was dead, now it's live for the opponent
+                    updateCells(w, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the game is a draw, i.e. no window is live for any player.
+     *
+     * @return Whether the game is a draw.
+     */
+    public boolean isDraw() {
+        return liveWindows[0] == 0 && liveWindows[1] == 0;
+    }
+
+    /**
+     * Returns the number of windows live for the provided player.
+     *
+     * @param player The player.
+     * @return The number of windows live for the provided player.
+     */
+    public int getLiveWindows(MNKCellState player) {
+        return liveWindows[player.ordinal()];
+    }
+
+    /**
+     * Returns whether the cell {@code (i, j)} doesn't lie in any window live for at least one player.
+     * Marking a dead cell cannot change the outcome of the game.
+     *
+     * @param i The row of the cell.
+     * @param j The column of the cell.
+     * @return Whether the cell is dead.
+     */
+    public boolean isDeadCell(int i, int j) {
+        return cellLiveWindows[i * N + j] == 0;
+    }
+
+    /**
+     * Adds delta to the live windows counter of every cell of the provided window.
+     *
+     * @param w The window.
+     * @param delta The value to add.
+     */
+    private void updateCells(int w, int delta) {
+        for (int k = 0, c = windowStart[w]; k < K; k++, c += windowStep[w]) {
+            cellLiveWindows[c] += delta;
+        }
+    }
+}